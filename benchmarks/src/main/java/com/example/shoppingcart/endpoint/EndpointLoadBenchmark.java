@@ -0,0 +1,174 @@
+package com.example.shoppingcart.endpoint;
+
+import com.example.shoppingcart.entity.*;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.repository.UserOrderRepository;
+import com.example.shoppingcart.repository.UserRepository;
+import com.example.shoppingcart.util.JwtTokenUtil;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.shoppingcart.service.ProductServiceBenchmark.startApplication;
+
+/**
+ * Load on the catalog and order endpoints over HTTP, with the classic Tomcat thread pool and with virtual threads
+ * (execution.virtual-threads.enabled), against a database answering every statement after dbLatencyMs
+ * Tomcat gets 32 platform threads, 256 JMH threads play the clients, the catalog cache is off so every request reads the database
+ * The virtual mode needs the benchmark to run on Java 21+, on older JVMs it measures the platform pool again
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(256)
+@Fork(1)
+public class EndpointLoadBenchmark {
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    @Param({"5"})
+    private int dbLatencyMs;
+
+    private ConfigurableApplicationContext context;
+    private String baseUrl;
+    private String authorization;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("http.maxConnections", "256");
+        context = startApplication("endpointLoadBenchmark", builder -> builder.initializers(context ->
+                        context.getBeanFactory().addBeanPostProcessor(slowDatabase(dbLatencyMs))),
+                "execution.virtual-threads.enabled=" + "virtual".equals(threads),
+                "server.tomcat.threads.max=32",
+                "spring.datasource.hikari.maximum-pool-size=64",
+                "spring.cache.type=none",
+                "jwt.secret=benchmark",
+                "jwt.expiration=3600000");
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        User user = context.getBean(UserRepository.class).save(User.builder()
+                .name("bench")
+                .surname("mark")
+                .email("benchmark@mail.com")
+                .password("benchmark")
+                .type(UserType.CUSTOMER)
+                .build());
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            products.add(Product.builder()
+                    .name("product" + i)
+                    .description("description of product " + i)
+                    .type(ProductType.values()[i % ProductType.values().length])
+                    .price(i + 1)
+                    .countInStock(1000)
+                    .createdDate(new Date())
+                    .build());
+        }
+        products = context.getBean(ProductRepository.class).saveAll(products);
+        List<UserOrder> orders = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            orders.add(UserOrder.builder()
+                    .user(user)
+                    .product(products.get(i))
+                    .countOfProduct(1)
+                    .status(OrderStatus.AWAITING_FOR_PAYMENT)
+                    .createdDate(LocalDateTime.now())
+                    .build());
+        }
+        context.getBean(UserOrderRepository.class).saveAll(orders);
+        authorization = "Bearer " + context.getBean(JwtTokenUtil.class).generateToken(user.getEmail());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int catalog() throws IOException {
+        return get("/product/view?size=20");
+    }
+
+    @Benchmark
+    public int customerOrders() throws IOException {
+        return get("/order?size=20");
+    }
+
+
+    private int get(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestProperty("Authorization", authorization);
+        int status = connection.getResponseCode();
+        if (status != 200) {
+            throw new IllegalStateException("GET " + path + " returned " + status);
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream in = connection.getInputStream()) {
+            while (in.read(buffer) >= 0) {
+                // the body is read to the end, so the connection is kept alive for the next request
+            }
+        }
+        return status;
+    }
+
+    /**
+     * wraps the data source, so every executed statement first waits latencyMs, like a slow database would
+     */
+    private static BeanPostProcessor slowDatabase(int latencyMs) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource)) {
+                    return bean;
+                }
+                return new DelegatingDataSource((DataSource) bean) {
+                    @Override
+                    public Connection getConnection() throws SQLException {
+                        return delay(super.getConnection(), Connection.class, latencyMs);
+                    }
+                };
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T delay(T target, Class<T> type, int latencyMs) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().startsWith("execute")) {
+                Thread.sleep(latencyMs);
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+            if (result instanceof PreparedStatement) {
+                return delay((PreparedStatement) result, PreparedStatement.class, latencyMs);
+            }
+            return result;
+        });
+    }
+}
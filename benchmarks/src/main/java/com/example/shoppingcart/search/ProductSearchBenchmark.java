@@ -0,0 +1,117 @@
+package com.example.shoppingcart.search;
+
+import com.example.shoppingcart.entity.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the inverted index of ProductSearchIndex with the former
+ * name LIKE %?% OR description LIKE %?% query, on catalogs of different size
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSearchBenchmark {
+
+    private static final String LIKE_QUERY =
+            "SELECT * FROM product p WHERE p.name LIKE ? OR p.description LIKE ?";
+
+    @Param({"10000", "100000", "1000000"})
+    private int catalogSize;
+
+    private ProductSearchIndex searchIndex;
+    private Connection connection;
+    private PreparedStatement likeStatement;
+    private String keyword;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        Random random = new Random(42);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            words.add(randomWord(random));
+        }
+        keyword = words.get(17).substring(0, 4);
+
+        connection = DriverManager.getConnection("jdbc:h2:mem:search" + catalogSize, "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE product (id INT PRIMARY KEY, name VARCHAR(255), description VARCHAR(255))");
+        }
+        List<Product> products = new ArrayList<>(catalogSize);
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO product VALUES (?, ?, ?)")) {
+            for (int id = 1; id <= catalogSize; id++) {
+                Product product = Product.builder()
+                        .id(id)
+                        .name(words.get(random.nextInt(words.size())) + " " + words.get(random.nextInt(words.size())))
+                        .description(sentence(random, words, 12))
+                        .build();
+                products.add(product);
+                insert.setInt(1, id);
+                insert.setString(2, product.getName());
+                insert.setString(3, product.getDescription());
+                insert.addBatch();
+                if (id % 10_000 == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        likeStatement = connection.prepareStatement(LIKE_QUERY);
+        searchIndex = new ProductSearchIndex();
+        searchIndex.rebuild(products);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public List<Integer> invertedIndex() {
+        return searchIndex.search(keyword);
+    }
+
+    @Benchmark
+    public List<Integer> likeQuery() throws SQLException {
+        likeStatement.setString(1, "%" + keyword + "%");
+        likeStatement.setString(2, "%" + keyword + "%");
+        List<Integer> productIds = new ArrayList<>();
+        try (ResultSet resultSet = likeStatement.executeQuery()) {
+            while (resultSet.next()) {
+                productIds.add(resultSet.getInt(1));
+            }
+        }
+        return productIds;
+    }
+
+    private static String sentence(Random random, List<String> words, int length) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(words.get(random.nextInt(words.size())));
+        }
+        return sentence.toString();
+    }
+
+    private static String randomWord(Random random) {
+        int length = 4 + random.nextInt(6);
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+}
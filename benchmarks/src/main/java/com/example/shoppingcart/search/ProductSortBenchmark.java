@@ -0,0 +1,140 @@
+package com.example.shoppingcart.search;
+
+import com.example.shoppingcart.entity.Product;
+import com.example.shoppingcart.entity.ProductSortKey;
+import com.example.shoppingcart.entity.ProductType;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a sorted page sliced from ProductSortIndex with the former keyset ORDER BY query
+ * (type = ? ORDER BY price DESC, id DESC, backed by an index on type, price, id), on catalogs of different size,
+ * for the first page and for a page in the middle of the type
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSortBenchmark {
+
+    private static final int PAGE_SIZE = 21;
+    private static final String FIRST_PAGE_QUERY =
+            "SELECT * FROM product WHERE type = ? ORDER BY price DESC, id DESC LIMIT ?";
+    private static final String NEXT_PAGE_QUERY =
+            "SELECT * FROM product WHERE type = ? AND (price < ? OR price = ? AND id < ?) ORDER BY price DESC, id DESC LIMIT ?";
+
+    @Param({"10000", "100000", "1000000"})
+    private int catalogSize;
+
+    private ProductSortIndex sortIndex;
+    private Connection connection;
+    private PreparedStatement firstPageStatement;
+    private PreparedStatement nextPageStatement;
+    private Product middle;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        Random random = new Random(42);
+        ProductType[] types = ProductType.values();
+        connection = DriverManager.getConnection("jdbc:h2:mem:sort" + catalogSize, "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE product (id INT PRIMARY KEY, name VARCHAR(255), description VARCHAR(255), " +
+                    "type VARCHAR(32), price DOUBLE, count_in_stock INT, created_date TIMESTAMP, updated_date DATE)");
+            statement.execute("CREATE INDEX product_type_price ON product (type, price, id)");
+        }
+        List<Product> products = new ArrayList<>(catalogSize);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO product (id, name, description, type, price, count_in_stock, created_date) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (int id = 1; id <= catalogSize; id++) {
+                Product product = Product.builder()
+                        .id(id)
+                        .name("product " + random.nextInt(catalogSize))
+                        .description("description of product " + id)
+                        .type(types[random.nextInt(types.length)])
+                        .price(random.nextInt(100_000) / 100.0)
+                        .countInStock(random.nextInt(100))
+                        .createdDate(new Timestamp(1_600_000_000_000L + random.nextInt(1_000_000_000)))
+                        .build();
+                products.add(product);
+                insert.setInt(1, id);
+                insert.setString(2, product.getName());
+                insert.setString(3, product.getDescription());
+                insert.setString(4, product.getType().name());
+                insert.setDouble(5, product.getPrice());
+                insert.setInt(6, product.getCountInStock());
+                insert.setTimestamp(7, (Timestamp) product.getCreatedDate());
+                insert.addBatch();
+                if (id % 10_000 == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        firstPageStatement = connection.prepareStatement(FIRST_PAGE_QUERY);
+        nextPageStatement = connection.prepareStatement(NEXT_PAGE_QUERY);
+        sortIndex = new ProductSortIndex();
+        sortIndex.rebuild(products);
+        List<Product> all = sortIndex.page(ProductType.ELECTRONICS, ProductSortKey.PRICE, false, null, 0, catalogSize);
+        middle = all.get(all.size() / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public List<Product> sortIndexFirstPage() {
+        return sortIndex.page(ProductType.ELECTRONICS, ProductSortKey.PRICE, false, null, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Product> sortIndexMiddlePage() {
+        return sortIndex.page(ProductType.ELECTRONICS, ProductSortKey.PRICE, false, middle.getPrice(), middle.getId(), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Product> orderByQueryFirstPage() throws SQLException {
+        firstPageStatement.setString(1, ProductType.ELECTRONICS.name());
+        firstPageStatement.setInt(2, PAGE_SIZE);
+        return read(firstPageStatement);
+    }
+
+    @Benchmark
+    public List<Product> orderByQueryMiddlePage() throws SQLException {
+        nextPageStatement.setString(1, ProductType.ELECTRONICS.name());
+        nextPageStatement.setDouble(2, middle.getPrice());
+        nextPageStatement.setDouble(3, middle.getPrice());
+        nextPageStatement.setInt(4, middle.getId());
+        nextPageStatement.setInt(5, PAGE_SIZE);
+        return read(nextPageStatement);
+    }
+
+    private static List<Product> read(PreparedStatement statement) throws SQLException {
+        List<Product> products = new ArrayList<>(PAGE_SIZE);
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                products.add(Product.builder()
+                        .id(resultSet.getInt("id"))
+                        .name(resultSet.getString("name"))
+                        .description(resultSet.getString("description"))
+                        .type(ProductType.valueOf(resultSet.getString("type")))
+                        .price(resultSet.getDouble("price"))
+                        .countInStock(resultSet.getInt("count_in_stock"))
+                        .createdDate(resultSet.getTimestamp("created_date"))
+                        .build());
+            }
+        }
+        return products;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.shoppingcart.security;
+
+import com.example.shoppingcart.entity.User;
+import com.example.shoppingcart.entity.UserType;
+import com.example.shoppingcart.metrics.ShoppingCartMetrics;
+import com.example.shoppingcart.util.JwtTokenBenchmark;
+import com.example.shoppingcart.util.JwtTokenUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.util.ReflectionUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authentication of a request with a bearer token, the user is served by a stub instead of the database
+ * doFilterInternal finds the principal in PrincipalCache, doFilterInternalCacheMiss parses the token and loads the user
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationTokenFilterBenchmark {
+
+    private static final String EMAIL = "lennon@gmail.com";
+
+    private JwtAuthenticationTokenFilter filter;
+    private PrincipalCache principalCache;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private final FilterChain filterChain = (servletRequest, servletResponse) -> {
+    };
+
+    @Setup
+    public void setUp() {
+        JwtTokenUtil tokenUtil = JwtTokenBenchmark.newTokenUtil("23nif$@&bsdb454@#$3SGLWEMP", 300000L);
+        CurrentUser currentUser = new CurrentUser(User.builder()
+                .id(1)
+                .email(EMAIL)
+                .password("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3ZpZ4Z1Q3J5Q1Q2Q3Q4Q5Q6")
+                .type(UserType.CUSTOMER)
+                .build());
+        filter = new JwtAuthenticationTokenFilter();
+        principalCache = new PrincipalCache(10000, 600, new SimpleMeterRegistry());
+        setField("tokenUtil", tokenUtil);
+        setField("principalCache", principalCache);
+        setField("metrics", new ShoppingCartMetrics(new SimpleMeterRegistry()));
+        setField("userDetailsService", new UserDetailsServiceImpl(null) {
+            @Override
+            public UserDetails loadUserByUsername(String email) {
+                return currentUser;
+            }
+        });
+        request = new MockHttpServletRequest("GET", "/product/view");
+        request.addHeader("Authorization", "Bearer " + tokenUtil.generateToken(EMAIL));
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Object doFilterInternal() throws ServletException, IOException {
+        SecurityContextHolder.clearContext();
+        filter.doFilterInternal(request, response, filterChain);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Benchmark
+    public Object doFilterInternalCacheMiss() throws ServletException, IOException {
+        SecurityContextHolder.clearContext();
+        principalCache.evictUser(EMAIL);
+        filter.doFilterInternal(request, response, filterChain);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private void setField(String name, Object value) {
+        Field field = ReflectionUtils.findField(JwtAuthenticationTokenFilter.class, name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, filter, value);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.ShoppingCartApplication;
+import com.example.shoppingcart.dto.response.PageResponseDto;
+import com.example.shoppingcart.dto.response.ProductResponseDto;
+import com.example.shoppingcart.entity.Product;
+import com.example.shoppingcart.entity.ProductSortKey;
+import com.example.shoppingcart.entity.ProductType;
+import com.example.shoppingcart.repository.ProductRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * ProductService list methods against the application running on an in-memory H2 database,
+ * with and without the catalog cache
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    @Param({"10000"})
+    private int catalogSize;
+
+    @Param({"none", "caffeine"})
+    private String cacheType;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = startApplication("productServiceBenchmark", "spring.cache.type=" + cacheType);
+        productService = context.getBean(ProductService.class);
+        ProductRepository productRepository = context.getBean(ProductRepository.class);
+        Random random = new Random(42);
+        ProductType[] types = ProductType.values();
+        List<Product> products = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            products.add(Product.builder()
+                    .name("product" + i)
+                    .description("description of product " + i)
+                    .type(types[i % types.length])
+                    .price(1 + random.nextInt(100_000))
+                    .countInStock(random.nextInt(1000))
+                    .createdDate(new Date(System.currentTimeMillis() - random.nextInt(1_000_000_000)))
+                    .build());
+        }
+        productRepository.saveAll(products);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PageResponseDto<ProductResponseDto> findAll() {
+        return productService.findAll(null, 20);
+    }
+
+    @Benchmark
+    public PageResponseDto<ProductResponseDto> findByType() {
+        return productService.findByType("ELECTRONICS", null, 20);
+    }
+
+    @Benchmark
+    public PageResponseDto<ProductResponseDto> findByTypeSorted() {
+        return productService.findByTypeSorted("ELECTRONICS", ProductSortKey.PRICE, false, null, 20);
+    }
+
+    /**
+     * starts the application on a random port, against an in-memory H2 database
+     * settings are passed as command line arguments, so they override application.yml
+     *
+     * @param database   -> name of the in-memory database
+     * @param properties -> additional properties
+     */
+    public static ConfigurableApplicationContext startApplication(String database, String... properties) {
+        return startApplication(database, builder -> {
+        }, properties);
+    }
+
+    /**
+     * @param customizer -> changes the application before it starts, e.g. adds initializers
+     */
+    public static ConfigurableApplicationContext startApplication(String database,
+                                                                  Consumer<SpringApplicationBuilder> customizer,
+                                                                  String... properties) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:" + database,
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.datasource.driver-class-name=org.h2.Driver",
+                "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "logging.file.name=target/benchmark.log",
+                "logging.level.root=warn"));
+        args.addAll(Arrays.asList(properties));
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(ShoppingCartApplication.class);
+        customizer.accept(builder);
+        return builder.run(args.stream().map(arg -> "--" + arg).toArray(String[]::new));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.shoppingcart.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token parsing and validation, done by JwtAuthenticationTokenFilter on every authenticated request
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenBenchmark {
+
+    private static final String EMAIL = "lennon@gmail.com";
+
+    private JwtTokenUtil tokenUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        tokenUtil = newTokenUtil("23nif$@&bsdb454@#$3SGLWEMP", 300000L);
+        token = tokenUtil.generateToken(EMAIL);
+    }
+
+    @Benchmark
+    public String getUsernameFromToken() {
+        return tokenUtil.getUsernameFromToken(token);
+    }
+
+    @Benchmark
+    public Boolean validateToken() {
+        return tokenUtil.validateToken(token, EMAIL);
+    }
+
+    /**
+     * JwtTokenUtil gets its settings injected by Spring, here they are set directly
+     */
+    public static JwtTokenUtil newTokenUtil(String secret, Long expiration) {
+        JwtTokenUtil tokenUtil = new JwtTokenUtil();
+        setField(tokenUtil, "secret", secret);
+        setField(tokenUtil, "expiration", expiration);
+        return tokenUtil;
+    }
+
+    static void setField(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+}
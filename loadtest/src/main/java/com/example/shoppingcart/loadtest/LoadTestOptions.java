@@ -0,0 +1,115 @@
+package com.example.shoppingcart.loadtest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Options of a load test run, given as name=value arguments, e.g.
+ * java -jar target/loadtest.jar stages=20:30,200:60,20:30 hot-stock=100 think-time=50
+ * arguments starting with -- are passed to the application, e.g. --spring.cache.type=none
+ */
+public class LoadTestOptions {
+
+    private static final Map<String, String> DEFAULTS = new HashMap<>();
+
+    static {
+        DEFAULTS.put("stages", "10:10,50:30,10:10");
+        DEFAULTS.put("products", "1000");
+        DEFAULTS.put("stock", "1000");
+        DEFAULTS.put("hot-products", "10");
+        DEFAULTS.put("hot-stock", "200");
+        DEFAULTS.put("hot-share", "0.3");
+        DEFAULTS.put("users", "200");
+        DEFAULTS.put("new-shopper-share", "0.2");
+        DEFAULTS.put("browse-pages", "3");
+        DEFAULTS.put("page-size", "20");
+        DEFAULTS.put("order-share", "0.5");
+        DEFAULTS.put("max-count", "3");
+        DEFAULTS.put("think-time", "100");
+        DEFAULTS.put("max-shoppers", "500");
+        DEFAULTS.put("result", "loadtest-result.json");
+    }
+
+    // arrival rate of shoppers per second and how many seconds it lasts, one stage after the other
+    final List<Stage> stages = new ArrayList<>();
+    // products seeded with stock items each, hot products are seeded with hotStock items,
+    // hotShare of the orders are placed on a hot product, so they sell out during the run
+    final int products;
+    final int stock;
+    final int hotProducts;
+    final int hotStock;
+    final double hotShare;
+    // seeded customers sign in, newShopperShare of the shoppers register first
+    final int users;
+    final double newShopperShare;
+    // catalog pages of one type every shopper reads, then orderShare of them order 1 to maxCount items
+    final int browsePages;
+    final int pageSize;
+    final double orderShare;
+    final int maxCount;
+    // ms a shopper waits between two requests
+    final long thinkTime;
+    // shoppers in progress at once, arrivals beyond are counted as dropped
+    final int maxShoppers;
+    // json file of the report
+    final String result;
+    final List<String> applicationProperties = new ArrayList<>();
+
+
+    public LoadTestOptions(String... args) {
+        Map<String, String> values = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                applicationProperties.add(arg.substring(2));
+                continue;
+            }
+            int separator = arg.indexOf('=');
+            if (separator < 0 || !DEFAULTS.containsKey(arg.substring(0, separator))) {
+                throw new IllegalArgumentException("Unknown option " + arg + ", options are " + DEFAULTS.keySet());
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        for (String stage : values.get("stages").split(",")) {
+            String[] rateAndSeconds = stage.trim().split(":");
+            stages.add(new Stage(Double.parseDouble(rateAndSeconds[0]), Integer.parseInt(rateAndSeconds[1])));
+        }
+        products = Integer.parseInt(values.get("products"));
+        stock = Integer.parseInt(values.get("stock"));
+        hotProducts = Integer.parseInt(values.get("hot-products"));
+        hotStock = Integer.parseInt(values.get("hot-stock"));
+        hotShare = Double.parseDouble(values.get("hot-share"));
+        users = Integer.parseInt(values.get("users"));
+        newShopperShare = Double.parseDouble(values.get("new-shopper-share"));
+        browsePages = Integer.parseInt(values.get("browse-pages"));
+        pageSize = Integer.parseInt(values.get("page-size"));
+        orderShare = Double.parseDouble(values.get("order-share"));
+        maxCount = Integer.parseInt(values.get("max-count"));
+        thinkTime = Long.parseLong(values.get("think-time"));
+        maxShoppers = Integer.parseInt(values.get("max-shoppers"));
+        result = values.get("result");
+        if (users < 1 && newShopperShare < 1) {
+            throw new IllegalArgumentException("users=0 needs new-shopper-share=1");
+        }
+    }
+
+    static class Stage {
+
+        final double rate;
+        final int seconds;
+
+        Stage(double rate, int seconds) {
+            if (rate <= 0 || seconds <= 0) {
+                throw new IllegalArgumentException("A stage needs a rate and seconds above 0");
+            }
+            this.rate = rate;
+            this.seconds = seconds;
+        }
+
+        @Override
+        public String toString() {
+            return rate + "/s for " + seconds + "s";
+        }
+    }
+}
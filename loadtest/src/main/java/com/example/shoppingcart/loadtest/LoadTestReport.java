@@ -0,0 +1,190 @@
+package com.example.shoppingcart.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Results of a load test run: latencies and outcomes per scenario step, shopper arrivals and the stock check
+ * Every response is one of
+ * ok       -> 2xx
+ * sold out -> 409 of an order, the product hasn't enough items, expected once hot products sell out
+ * shed     -> 429 or 503, the application protects itself (rate limits, password hashing queue)
+ * error    -> any other status or an I/O error
+ */
+public class LoadTestReport {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+    final LongAdder shoppersStarted = new LongAdder();
+    final LongAdder shoppersDropped = new LongAdder();
+    // items of orders answered with 2xx, compared with the stock the database lost
+    final AtomicLong orderedItems = new AtomicLong();
+    private long startTime;
+    private long endTime;
+    private StockCheck stockCheck;
+
+
+    public LoadTestReport(String... stepNames) {
+        for (String stepName : stepNames) {
+            steps.put(stepName, new Step());
+        }
+    }
+
+
+    void start() {
+        startTime = System.nanoTime();
+    }
+
+    void end() {
+        endTime = System.nanoTime();
+    }
+
+    /**
+     * method to record a response, called by the shopper threads
+     *
+     * @param step          -> scenario step
+     * @param status        -> http status, 0 for an I/O error
+     * @param latencyMicros -> time from sending the request to reading the whole response
+     */
+    void record(String step, int status, long latencyMicros) {
+        Step stats = steps.get(step);
+        stats.latencies.recordValue(Math.min(latencyMicros, MAX_LATENCY_MICROS));
+        if (status >= 200 && status < 300) {
+            stats.ok.increment();
+        } else if (status == 409) {
+            stats.soldOut.increment();
+        } else if (status == 429 || status == 503) {
+            stats.shed.increment();
+        } else {
+            stats.errors.increment();
+        }
+    }
+
+    void stockCheck(StockCheck stockCheck) {
+        this.stockCheck = stockCheck;
+    }
+
+    boolean oversold() {
+        return stockCheck != null && !stockCheck.passed();
+    }
+
+    /**
+     * method to print the report as a table
+     */
+    void print(PrintStream out) {
+        double seconds = (endTime - startTime) / 1e9;
+        out.printf("%nDuration %.1fs, shoppers started %d, dropped %d (max-shoppers busy)%n",
+                seconds, shoppersStarted.sum(), shoppersDropped.sum());
+        out.printf("%-10s %9s %9s %9s %9s %9s %9s %9s %9s %9s %9s %9s%n",
+                "step", "requests", "ok/s", "ok", "sold out", "shed", "errors", "error %", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, Step> entry : steps.entrySet()) {
+            Step step = entry.getValue();
+            Histogram latencies = step.latencies.copy();
+            long requests = latencies.getTotalCount();
+            out.printf("%-10s %9d %9.1f %9d %9d %9d %9d %9.2f %9.1f %9.1f %9.1f %9.1f%n",
+                    entry.getKey(), requests, step.ok.sum() / seconds, step.ok.sum(), step.soldOut.sum(), step.shed.sum(),
+                    step.errors.sum(), requests == 0 ? 0 : 100.0 * step.errors.sum() / requests,
+                    millis(latencies, 50), millis(latencies, 90), millis(latencies, 99), latencies.getMaxValue() / 1000.0);
+        }
+        if (stockCheck != null) {
+            out.printf("Stock check: %s, %d items ordered, %d items in orders, %d items of stock gone, %d products below 0 items%n",
+                    stockCheck.passed() ? "passed" : "OVERSOLD", stockCheck.orderedItems, stockCheck.itemsInOrders,
+                    stockCheck.stockGone, stockCheck.productsBelowZero);
+        }
+    }
+
+    /**
+     * method to write the report as json, to compare runs of different releases
+     */
+    void write(File file) throws IOException {
+        double seconds = (endTime - startTime) / 1e9;
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("durationSeconds", seconds);
+        report.put("shoppersStarted", shoppersStarted.sum());
+        report.put("shoppersDropped", shoppersDropped.sum());
+        Map<String, Object> stepReports = new LinkedHashMap<>();
+        for (Map.Entry<String, Step> entry : steps.entrySet()) {
+            Step step = entry.getValue();
+            Histogram latencies = step.latencies.copy();
+            Map<String, Object> stepReport = new LinkedHashMap<>();
+            stepReport.put("requests", latencies.getTotalCount());
+            stepReport.put("okPerSecond", step.ok.sum() / seconds);
+            stepReport.put("ok", step.ok.sum());
+            stepReport.put("soldOut", step.soldOut.sum());
+            stepReport.put("shed", step.shed.sum());
+            stepReport.put("errors", step.errors.sum());
+            Map<String, Double> percentiles = new LinkedHashMap<>();
+            for (double percentile : new double[]{50, 90, 99, 99.9}) {
+                percentiles.put("p" + percentile, millis(latencies, percentile));
+            }
+            percentiles.put("max", latencies.getMaxValue() / 1000.0);
+            stepReport.put("latencyMillis", percentiles);
+            stepReports.put(entry.getKey(), stepReport);
+        }
+        report.put("steps", stepReports);
+        if (stockCheck != null) {
+            Map<String, Object> stockReport = new LinkedHashMap<>();
+            stockReport.put("passed", stockCheck.passed());
+            stockReport.put("orderedItems", stockCheck.orderedItems);
+            stockReport.put("itemsInOrders", stockCheck.itemsInOrders);
+            stockReport.put("stockGone", stockCheck.stockGone);
+            stockReport.put("productsBelowZero", stockCheck.productsBelowZero);
+            report.put("stockCheck", stockReport);
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+    }
+
+
+    private static double millis(Histogram latencies, double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+
+    private static final class Step {
+
+        private final ConcurrentHistogram latencies = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        private final LongAdder ok = new LongAdder();
+        private final LongAdder soldOut = new LongAdder();
+        private final LongAdder shed = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+    }
+
+    /**
+     * stock of the database after the run, against the items the shoppers have been told they ordered
+     */
+    static final class StockCheck {
+
+        // seeded stock minus current stock, over all products
+        private final long stockGone;
+        // items of all orders in the database
+        private final long itemsInOrders;
+        private final long orderedItems;
+        private final int productsBelowZero;
+
+        StockCheck(long stockGone, long itemsInOrders, long orderedItems, int productsBelowZero) {
+            this.stockGone = stockGone;
+            this.itemsInOrders = itemsInOrders;
+            this.orderedItems = orderedItems;
+            this.productsBelowZero = productsBelowZero;
+        }
+
+        /**
+         * @return -> false if any product went below 0 items, or the stock lost doesn't match the ordered items
+         */
+        boolean passed() {
+            return productsBelowZero == 0 && stockGone == itemsInOrders && itemsInOrders == orderedItems;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.shoppingcart.loadtest;
+
+import com.example.shoppingcart.ShoppingCartApplication;
+import com.example.shoppingcart.entity.Product;
+import com.example.shoppingcart.entity.ProductType;
+import com.example.shoppingcart.entity.User;
+import com.example.shoppingcart.entity.UserOrder;
+import com.example.shoppingcart.entity.UserType;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.repository.UserOrderRepository;
+import com.example.shoppingcart.repository.UserRepository;
+import com.example.shoppingcart.service.ProductService;
+import com.example.shoppingcart.service.StockLeaseService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Entry point of loadtest.jar
+ * Starts the application on a random port against an in-memory H2 database, seeds customers and products,
+ * then lets shoppers arrive at the rates of the stages (open model: a slow application doesn't slow the arrivals down)
+ * and prints throughput, latency percentiles and outcomes per step, and whether any product has been oversold
+ * Exits with 1 if the stock check fails
+ */
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = new LoadTestOptions(args);
+        System.setProperty("http.maxConnections", String.valueOf(options.maxShoppers));
+        ConfigurableApplicationContext context = startApplication(options);
+        int exitCode;
+        try {
+            String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            Map<Integer, Integer> seededStock = new HashMap<>();
+            List<Integer> hotProductIds = seedProducts(context, options, seededStock);
+            seedUsers(context, options);
+
+            LoadTestReport report = new LoadTestReport(ShopperScenario.STEPS);
+            run(new ShopperScenario(baseUrl, options, report, hotProductIds), options, report);
+            report.stockCheck(checkStock(context, seededStock, report.orderedItems.get()));
+            report.print(System.out);
+            report.write(new File(options.result));
+            System.out.println("Report written to " + options.result);
+            exitCode = report.oversold() ? 1 : 0;
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+
+    /**
+     * settings are passed as command line arguments, so they override application.yml,
+     * arguments of the load test starting with -- come last and override these
+     */
+    private static ConfigurableApplicationContext startApplication(LoadTestOptions options) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:loadtest",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.datasource.driver-class-name=org.h2.Driver",
+                "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "logging.file.name=target/loadtest.log",
+                "logging.level.root=warn",
+                "access-log.file=target/access.log",
+                "order-journal.directory=target/order-journal",
+                "jwt.expiration=3600000",
+                // all shoppers come from one address, the limits of application.yml would reject them,
+                // a single route no request matches turns rate limiting off
+                "rate-limit.routes[0].name=none",
+                "rate-limit.routes[0].method=TRACE",
+                "rate-limit.routes[0].path=/none",
+                "rate-limit.routes[0].capacity=1",
+                "rate-limit.routes[0].per-second=1"));
+        args.addAll(options.applicationProperties);
+        return new SpringApplicationBuilder(ShoppingCartApplication.class)
+                .run(args.stream().map(arg -> "--" + arg).toArray(String[]::new));
+    }
+
+    /**
+     * @param seededStock -> filled with the stock of every seeded product
+     * @return -> ids of the hot products
+     */
+    private static List<Integer> seedProducts(ConfigurableApplicationContext context, LoadTestOptions options,
+                                              Map<Integer, Integer> seededStock) {
+        ProductType[] types = ProductType.values();
+        List<Product> products = new ArrayList<>(options.products + options.hotProducts);
+        for (int i = 0; i < options.hotProducts + options.products; i++) {
+            boolean hot = i < options.hotProducts;
+            products.add(Product.builder()
+                    .name((hot ? "hot product" : "product") + i)
+                    .description("description of product " + i)
+                    .type(types[i % types.length])
+                    .price(i + 1)
+                    .countInStock(hot ? options.hotStock : options.stock)
+                    .createdDate(new Date())
+                    .build());
+        }
+        products = context.getBean(ProductRepository.class).saveAll(products);
+        // the catalog indexes have been built at startup, before the products existed
+        context.getBean(ProductService.class).refreshCatalog();
+        List<Integer> hotProductIds = new ArrayList<>();
+        for (int i = 0; i < products.size(); i++) {
+            seededStock.put(products.get(i).getId(), products.get(i).getCountInStock());
+            if (i < options.hotProducts) {
+                hotProductIds.add(products.get(i).getId());
+            }
+        }
+        return hotProductIds;
+    }
+
+    /**
+     * customers all get the same password, hashed once, so seeding doesn't take a hash per customer
+     */
+    private static void seedUsers(ConfigurableApplicationContext context, LoadTestOptions options) {
+        String password = context.getBean(PasswordEncoder.class).encode(ShopperScenario.PASSWORD);
+        List<User> users = new ArrayList<>(options.users);
+        for (int i = 0; i < options.users; i++) {
+            users.add(User.builder()
+                    .name("Customer")
+                    .surname("Loadtest")
+                    .birthday(new Date(0))
+                    .email(ShopperScenario.seededEmail(i))
+                    .password(password)
+                    .type(UserType.CUSTOMER)
+                    .build());
+        }
+        context.getBean(UserRepository.class).saveAll(users);
+    }
+
+    private static void run(ShopperScenario scenario, LoadTestOptions options, LoadTestReport report) throws InterruptedException {
+        ThreadPoolExecutor shoppers = new ThreadPoolExecutor(options.maxShoppers, options.maxShoppers,
+                60, TimeUnit.SECONDS, new SynchronousQueue<>());
+        report.start();
+        long nextArrival = System.nanoTime();
+        for (int i = 0; i < options.stages.size(); i++) {
+            LoadTestOptions.Stage stage = options.stages.get(i);
+            System.out.printf("Stage %d/%d: %s%n", i + 1, options.stages.size(), stage);
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / stage.rate);
+            long stageEnd = nextArrival + TimeUnit.SECONDS.toNanos(stage.seconds);
+            while (nextArrival < stageEnd) {
+                long wait = nextArrival - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                try {
+                    shoppers.execute(scenario::run);
+                    report.shoppersStarted.increment();
+                } catch (RejectedExecutionException e) {
+                    report.shoppersDropped.increment();
+                }
+                nextArrival += interval;
+            }
+        }
+        shoppers.shutdown();
+        if (!shoppers.awaitTermination(5, TimeUnit.MINUTES)) {
+            System.out.println("Shoppers still in progress after 5 minutes, they are not waited for");
+        }
+        report.end();
+    }
+
+    private static LoadTestReport.StockCheck checkStock(ConfigurableApplicationContext context,
+                                                        Map<Integer, Integer> seededStock, long orderedItems) {
+        // items leased for hot products are out of the database stock but in no order yet
+        context.getBean(StockLeaseService.class).releaseAll();
+        long stockGone = 0;
+        int productsBelowZero = 0;
+        for (Product product : context.getBean(ProductRepository.class).findAll()) {
+            stockGone += seededStock.get(product.getId()) - product.getCountInStock();
+            if (product.getCountInStock() < 0) {
+                productsBelowZero++;
+            }
+        }
+        long itemsInOrders = 0;
+        for (UserOrder order : context.getBean(UserOrderRepository.class).findAll()) {
+            itemsInOrders += order.getCountOfProduct();
+        }
+        return new LoadTestReport.StockCheck(stockGone, itemsInOrders, orderedItems, productsBelowZero);
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.shoppingcart.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Journey of one shopper:
+ * register (new shoppers only) -> POST /user/auth -> GET /product/type, page by page -> POST /order (some shoppers)
+ * the shopper stops at the first step that fails, like a real one would
+ */
+public class ShopperScenario {
+
+    static final String REGISTER = "register";
+    static final String AUTH = "auth";
+    static final String BROWSE = "browse";
+    static final String ORDER = "order";
+    static final String[] STEPS = {REGISTER, AUTH, BROWSE, ORDER};
+
+    static final String PASSWORD = "loadtest-password";
+    private static final String[] TYPES = {"ELECTRONICS", "HOUSEHOLD", "CLOTHING", "CARE"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger newShoppers = new AtomicInteger();
+    private final String baseUrl;
+    private final LoadTestOptions options;
+    private final LoadTestReport report;
+    private final List<Integer> hotProductIds;
+
+
+    ShopperScenario(String baseUrl, LoadTestOptions options, LoadTestReport report, List<Integer> hotProductIds) {
+        this.baseUrl = baseUrl;
+        this.options = options;
+        this.report = report;
+        this.hotProductIds = hotProductIds;
+    }
+
+
+    /**
+     * method to run the journey of one shopper, called by a shopper thread
+     */
+    void run() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String email;
+        if (options.users < 1 || random.nextDouble() < options.newShopperShare) {
+            email = "shopper" + newShoppers.incrementAndGet() + "@loadtest.com";
+            ObjectNode user = objectMapper.createObjectNode();
+            user.put("name", "Shopper");
+            user.put("surname", "Loadtest");
+            user.put("birthday", "01.01.1990");
+            user.put("email", email);
+            user.put("password", PASSWORD);
+            if (send(REGISTER, "POST", "/user/", null, user) == null) {
+                return;
+            }
+            think();
+        } else {
+            email = seededEmail(random.nextInt(options.users));
+        }
+
+        ObjectNode login = objectMapper.createObjectNode();
+        login.put("email", email);
+        login.put("password", PASSWORD);
+        JsonNode auth = send(AUTH, "POST", "/user/auth", null, login);
+        if (auth == null) {
+            return;
+        }
+        String authorization = "Bearer " + auth.path("token").asText();
+
+        String type = TYPES[random.nextInt(TYPES.length)];
+        String cursor = null;
+        JsonNode page = null;
+        for (int i = 0; i < options.browsePages; i++) {
+            think();
+            String path = "/product/type?t=" + type + "&size=" + options.pageSize
+                    + (cursor == null ? "" : "&cursor=" + encode(cursor));
+            page = send(BROWSE, "GET", path, authorization, null);
+            if (page == null) {
+                return;
+            }
+            cursor = page.path("nextCursor").isTextual() ? page.path("nextCursor").asText() : null;
+            if (cursor == null) {
+                break;
+            }
+        }
+
+        if (random.nextDouble() >= options.orderShare) {
+            return;
+        }
+        int productId;
+        JsonNode items = page == null ? null : page.path("items");
+        if (!hotProductIds.isEmpty() && (random.nextDouble() < options.hotShare || items == null || items.size() == 0)) {
+            productId = hotProductIds.get(random.nextInt(hotProductIds.size()));
+        } else if (items != null && items.size() > 0) {
+            productId = items.get(random.nextInt(items.size())).path("id").asInt();
+        } else {
+            return;
+        }
+        int count = 1 + random.nextInt(options.maxCount);
+        think();
+        if (send(ORDER, "POST", "/order?id=" + productId + "&count=" + count, authorization, null) != null) {
+            report.orderedItems.addAndGet(count);
+        }
+    }
+
+    static String seededEmail(int user) {
+        return "customer" + user + "@loadtest.com";
+    }
+
+
+    /**
+     * method to send a request and record its latency and outcome
+     *
+     * @return -> parsed body of a 2xx response (an empty object if there is no body), null for any other outcome
+     */
+    private JsonNode send(String step, String method, String path, String authorization, JsonNode body) {
+        long startTime = System.nanoTime();
+        int status = 0;
+        byte[] responseBody = null;
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+            connection.setRequestMethod(method);
+            if (authorization != null) {
+                connection.setRequestProperty("Authorization", authorization);
+            }
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = connection.getOutputStream()) {
+                    objectMapper.writeValue(out, body);
+                }
+            }
+            status = connection.getResponseCode();
+            // the body is read to the end, also of errors, so the connection is kept alive for the next request
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (in != null) {
+                try (InputStream stream = in) {
+                    responseBody = readAll(stream);
+                }
+            }
+        } catch (IOException e) {
+            status = 0;
+        }
+        report.record(step, status, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+        if (status < 200 || status >= 300) {
+            return null;
+        }
+        try {
+            return responseBody == null || responseBody.length == 0
+                    ? objectMapper.createObjectNode() : objectMapper.readTree(responseBody);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void think() {
+        if (options.thinkTime > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(options.thinkTime));
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,16 +1,21 @@
 package com.example.shoppingcart;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.client.RestTemplate;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
-@SpringBootApplication
+@SpringBootApplication(exclude = {R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class})
 @EnableSwagger2
+@EnableCaching
+@EnableScheduling
 public class ShoppingCartApplication {
 
 	public static void main(String[] args) {
@@ -26,9 +31,4 @@ public class ShoppingCartApplication {
 	public RestTemplate restTemplate(){
 		return new RestTemplate();
 	}
-
-	@Bean
-	public ModelMapper mapper(){
-		return new ModelMapper();
-	}
 }
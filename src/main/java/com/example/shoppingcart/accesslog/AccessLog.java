@@ -0,0 +1,194 @@
+package com.example.shoppingcart.accesslog;
+
+import com.example.shoppingcart.config.AccessLogProperties;
+import com.example.shoppingcart.metrics.ShoppingCartMetrics;
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Access log, one json line per request instead of INFO lines in the endpoints
+ * Request threads only decide the sampling and put the record in a lock-free ring buffer,
+ * a dedicated writer thread formats the records and writes them to the file in batches,
+ * so neither formatting nor file I/O is on the request path
+ * When the writer falls behind by a whole buffer, records are dropped and counted by access.log.dropped
+ */
+@Slf4j
+@Component
+public class AccessLog {
+
+    private static final int BATCH_SIZE = 1024;
+
+    private final AccessLogRingBuffer buffer;
+    private final List<Sampling> sampling = new ArrayList<>();
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Counter dropped;
+    private final Path file;
+    private final long maxFileSize;
+    private final long flushIntervalNanos;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    // only used by the writer thread
+    private final StringBuilder line = new StringBuilder(256);
+    private Writer writer;
+    // chars written, the same as bytes for the ascii of most records
+    private long fileSize;
+
+
+    public AccessLog(AccessLogProperties properties, ShoppingCartMetrics metrics) {
+        for (AccessLogProperties.Sampling route : properties.getSampling()) {
+            if (route.getRate() < 0 || route.getRate() > 1) {
+                throw new IllegalArgumentException("Access log sampling of " + route.getPath() + " needs a rate from 0 to 1");
+            }
+            sampling.add(new Sampling(route));
+        }
+        buffer = new AccessLogRingBuffer(properties.getBufferSize());
+        dropped = metrics.accessLogDropped();
+        file = Paths.get(properties.getFile());
+        maxFileSize = properties.getMaxFileSize();
+        flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(properties.getFlushInterval());
+        writerThread = new Thread(this::write, "access-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+
+    /**
+     * method to log a finished request, called by the request thread, never blocks
+     *
+     * @param method         -> http method
+     * @param path           -> path within the application, the query is left out, it may hold secrets
+     * @param status         -> response status
+     * @param durationMicros -> time from the start of the request to the response
+     * @param user           -> email of the authenticated user, null for anonymous requests
+     * @param client         -> address of the client
+     */
+    public void log(String method, String path, int status, long durationMicros, String user, String client) {
+        if (status < 400 && !sampled(method, path)) {
+            return;
+        }
+        if (!buffer.offer(new AccessLogRecord(System.currentTimeMillis(), method, path, status, durationMicros, user, client))) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * method to stop the writer thread, records logged before are written and the file is closed
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writerThread);
+        writerThread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+
+    private boolean sampled(String method, String path) {
+        for (Sampling route : sampling) {
+            if ((route.method == null || route.method.equalsIgnoreCase(method)) && pathMatcher.match(route.path, path)) {
+                return route.rate >= 1 || ThreadLocalRandom.current().nextDouble() < route.rate;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * loop of the writer thread: drain the buffer in batches, flush and sleep once it is empty
+     */
+    private void write() {
+        while (true) {
+            boolean stopping = !running;
+            int written = buffer.drain(this::append, BATCH_SIZE);
+            if (written == 0) {
+                flush();
+                if (stopping) {
+                    break;
+                }
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+        close();
+    }
+
+    private void append(AccessLogRecord record) {
+        line.setLength(0);
+        record.appendJson(line);
+        try {
+            if (writer == null || fileSize >= maxFileSize) {
+                open();
+            }
+            writer.append(line);
+            fileSize += line.length();
+        } catch (IOException e) {
+            // the record is lost, the file is opened again for the next one
+            log.error("Access log can't be written to {}: {}", file, e.getMessage());
+            close();
+        }
+    }
+
+    private void open() throws IOException {
+        close();
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        if (Files.exists(file) && Files.size(file) >= maxFileSize) {
+            Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileSize = Files.size(file);
+    }
+
+    private void flush() {
+        if (writer != null) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                log.error("Access log can't be flushed to {}: {}", file, e.getMessage());
+                close();
+            }
+        }
+    }
+
+    private void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.error("Access log {} can't be closed: {}", file, e.getMessage());
+            }
+            writer = null;
+        }
+    }
+
+
+    private static final class Sampling {
+
+        private final String method;
+        private final String path;
+        private final double rate;
+
+        private Sampling(AccessLogProperties.Sampling route) {
+            this.method = route.getMethod();
+            this.path = route.getPath();
+            this.rate = route.getRate();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.shoppingcart.accesslog;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs every request to the AccessLog once the response is complete
+ * runs in the security filter chain right after JwtAuthenticationTokenFilter, so the user is known
+ * and requests rejected by the rate limit or by authorization are logged with their status
+ * Async requests (exports, reactive reads) are logged when the async processing completes
+ */
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    @Autowired
+    private AccessLog accessLog;
+
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long startTime = System.nanoTime();
+        String user = user();
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        try {
+            filterChain.doFilter(request, response);
+            status = response.getStatus();
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        log(request, response.getStatus(), startTime, user);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                log(request, status, startTime, user);
+            }
+        }
+    }
+
+    private void log(HttpServletRequest request, int status, long startTime, String user) {
+        accessLog.log(request.getMethod(), urlPathHelper.getPathWithinApplication(request), status,
+                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime), user, request.getRemoteAddr());
+    }
+
+    private static String user() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated() && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return authentication.getName();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.shoppingcart.accesslog;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * One request of the access log, written by the writer thread as a json line:
+ * {"time":"2022-05-01T10:00:00.123Z","method":"GET","path":"/product/view","status":200,"micros":1234,"user":"a@b.c","client":"10.0.0.1"}
+ * user is null for anonymous requests
+ */
+@Getter
+@RequiredArgsConstructor
+public final class AccessLogRecord {
+
+    private final long timestamp;
+    private final String method;
+    private final String path;
+    private final int status;
+    private final long durationMicros;
+    private final String user;
+    private final String client;
+
+
+    /**
+     * method to append the record as a json line
+     *
+     * @param out -> buffer of the writer thread, reused for every record
+     */
+    void appendJson(StringBuilder out) {
+        out.append("{\"time\":\"").append(Instant.ofEpochMilli(timestamp)).append('"');
+        out.append(",\"method\":");
+        appendString(out, method);
+        out.append(",\"path\":");
+        appendString(out, path);
+        out.append(",\"status\":").append(status);
+        out.append(",\"micros\":").append(durationMicros);
+        out.append(",\"user\":");
+        appendString(out, user);
+        out.append(",\"client\":");
+        appendString(out, client);
+        out.append("}\n");
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+}
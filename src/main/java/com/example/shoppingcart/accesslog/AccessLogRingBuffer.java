@@ -0,0 +1,92 @@
+package com.example.shoppingcart.accesslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free queue of many request threads and one writer thread
+ * every slot has a sequence telling whose turn it is: position for the next producer,
+ * position + 1 for the consumer once the record is published, position + capacity for the producer of the next lap
+ * Producers claim a position with one compare-and-set and never wait, a full buffer rejects the record
+ */
+final class AccessLogRingBuffer {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<AccessLogRecord> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // only read and written by the consumer thread
+    private long head;
+
+
+    AccessLogRingBuffer(int requestedCapacity) {
+        capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        mask = capacity - 1;
+        slots = new AtomicReferenceArray<>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+
+    /**
+     * method to add a record, called by any thread
+     *
+     * @param record -> record of a finished request
+     * @return -> false if the buffer is full
+     */
+    boolean offer(AccessLogRecord record) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, record);
+                    // release store, the consumer sees the record once it sees the sequence
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // the consumer hasn't taken the record of the previous lap yet
+                return false;
+            } else {
+                // another producer claimed the position
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * method to take published records in the order of their positions, called by the consumer thread only
+     *
+     * @param consumer -> receives the records
+     * @param max      -> max count of records to take
+     * @return -> count of taken records
+     */
+    int drain(Consumer<AccessLogRecord> consumer, int max) {
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            AccessLogRecord record = slots.get(index);
+            slots.lazySet(index, null);
+            sequences.lazySet(index, head + capacity);
+            head++;
+            drained++;
+            consumer.accept(record);
+        }
+        return drained;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
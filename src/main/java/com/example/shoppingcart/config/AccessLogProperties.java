@@ -0,0 +1,44 @@
+package com.example.shoppingcart.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Access log of all requests, see AccessLog
+ * the first sampling route matching method and path of a request decides the share of its successful requests
+ * that is logged, requests of no route are all logged
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("access-log")
+public class AccessLogProperties {
+
+    // file of json lines, one per request
+    private String file = "log/access.log";
+    // bytes, the file is renamed to <file>.1 (replacing the previous one) when it grows over this
+    private long maxFileSize = 104857600;
+    // records the request threads can get ahead of the writer thread, rounded up to a power of two
+    private int bufferSize = 65536;
+    // ms, the writer thread sleeps this long when the buffer is empty, written records are flushed then
+    private long flushInterval = 200;
+    private List<Sampling> sampling = new ArrayList<>();
+
+
+    @Getter
+    @Setter
+    public static class Sampling {
+
+        // http method, null for every method
+        private String method;
+        // ant pattern of the path
+        private String path;
+        // share of the successful requests that is logged, from 0 to 1, requests answered with 4xx or 5xx are all logged
+        private double rate = 1;
+    }
+}
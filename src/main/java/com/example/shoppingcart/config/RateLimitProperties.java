@@ -0,0 +1,41 @@
+package com.example.shoppingcart.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rate limits per route, see RateLimiter
+ * the first route matching method and path of a request limits it, requests of no route are not limited
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("rate-limit")
+public class RateLimitProperties {
+
+    // ms, buckets unused this long after they are full again are dropped
+    private long idleTimeout = 600000;
+    private List<Route> routes = new ArrayList<>();
+
+
+    @Getter
+    @Setter
+    public static class Route {
+
+        // tag of the rejection metric
+        private String name;
+        // http method, null for every method
+        private String method;
+        // ant pattern of the path
+        private String path;
+        // requests a client can send at once
+        private int capacity;
+        // requests per second a client can send in the long run
+        private double perSecond;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.shoppingcart.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.time.Duration;
+
+/**
+ * Non-blocking database access (r2dbc) for the reactive catalog read path, next to the JDBC DataSource used by JPA
+ * The connection pool is on purpose not a bean: spring boot doesn't create the JDBC DataSource
+ * once an r2dbc ConnectionFactory bean exists, r2dbc auto configuration is excluded for the same reason
+ */
+@Configuration
+public class ReactiveCatalogConfig implements DisposableBean {
+
+    private final ConnectionPool connectionPool;
+
+    public ReactiveCatalogConfig(@Value("${reactive-catalog.url}") String url,
+                                 @Value("${reactive-catalog.username:}") String username,
+                                 @Value("${reactive-catalog.password:}") String password,
+                                 @Value("${reactive-catalog.pool.max-size:10}") int maxSize,
+                                 @Value("${reactive-catalog.pool.max-acquire-time:5000}") long maxAcquireTimeMillis) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (!username.isEmpty()) {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        if (!password.isEmpty()) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+                .initialSize(0)
+                .maxSize(maxSize)
+                .maxAcquireTime(Duration.ofMillis(maxAcquireTimeMillis))
+                .build());
+    }
+
+
+    @Bean
+    public DatabaseClient reactiveCatalogDatabaseClient() {
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Override
+    public void destroy() {
+        connectionPool.dispose();
+    }
+}
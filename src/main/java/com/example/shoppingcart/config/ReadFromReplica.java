@@ -0,0 +1,15 @@
+package com.example.shoppingcart.config;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks read-only service methods whose queries may run on a replica database, see ReplicaRoutingDataSource
+ * Only for reads that tolerate replication lag, never for reads a write is based on,
+ * and never on @Cacheable methods, their result is shared by all users for the whole cache ttl
+ * Without replica-datasource.urls it has no effect
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReadFromReplica {
+}
@@ -0,0 +1,119 @@
+package com.example.shoppingcart.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas, enabled by replica-datasource.urls
+ * spring.datasource stays the primary, every replica gets its own pool with the same credentials and
+ * spring.datasource.hikari settings, the ReplicaRoutingDataSource over them replaces the auto configured DataSource
+ */
+@Configuration
+@ConditionalOnProperty("replica-datasource.urls")
+public class ReplicaDataSourceConfig implements WebMvcConfigurer, DisposableBean {
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+    private final ReplicaRoutingDataSource dataSource;
+
+    public ReplicaDataSourceConfig(DataSourceProperties properties, Environment environment,
+                                   @Value("${replica-datasource.urls}") String[] urls,
+                                   @Value("${replica-datasource.read-your-writes-window:5000}") long readYourWritesWindowMillis,
+                                   @Value("${replica-datasource.validation-timeout:1}") int validationTimeoutSeconds) {
+        HikariDataSource primary = pool(properties, environment, properties.determineUrl(), "primary");
+        List<DataSource> replicas = new ArrayList<>(urls.length);
+        for (int i = 0; i < urls.length; i++) {
+            replicas.add(pool(properties, environment, urls[i].trim(), "replica-" + i));
+        }
+        dataSource = new ReplicaRoutingDataSource(primary, replicas, readYourWritesWindowMillis, validationTimeoutSeconds);
+    }
+
+
+    @Bean
+    public DataSource dataSource() {
+        return dataSource;
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor readFromReplicaAdvisor() {
+        MethodInterceptor interceptor = invocation -> ReplicaRoutingDataSource.readFromReplica(() -> {
+            try {
+                return invocation.proceed();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(ReadFromReplica.class), interceptor);
+        // outside the transaction interceptor, so the read is marked before a connection is taken
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    @Scheduled(fixedDelayString = "${replica-datasource.health-check-interval:5000}")
+    public void checkReplicas() {
+        dataSource.checkReplicas();
+    }
+
+    /**
+     * every request which may change data starts the read-your-writes window of its user
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+                String method = request.getMethod();
+                Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+                if (authentication != null && !"GET".equals(method) && !"HEAD".equals(method) && !"OPTIONS".equals(method)) {
+                    dataSource.recordWrite(authentication.getName());
+                }
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        for (HikariDataSource pool : pools) {
+            pool.close();
+        }
+    }
+
+
+    private HikariDataSource pool(DataSourceProperties properties, Environment environment, String url, String poolName) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(url).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(poolName);
+        pools.add(pool);
+        return pool;
+    }
+}
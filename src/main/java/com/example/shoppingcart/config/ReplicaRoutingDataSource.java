@@ -0,0 +1,161 @@
+package com.example.shoppingcart.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * DataSource which sends the queries of ReadFromReplica methods to replicas and everything else to the primary
+ * Replicas are used round-robin, a replica which fails to give a connection is skipped until the next health check
+ * finds it valid again, if no replica is healthy the primary is used
+ * A user who has written recently (within the read-your-writes window) reads from the primary, so they see their own changes,
+ * writes are recorded per node, behind a load balancer the window only holds on the node that served the write
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY = "primary";
+    private static final ThreadLocal<Boolean> REPLICA_READ = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final AtomicBoolean[] healthy;
+    private final AtomicInteger next = new AtomicInteger();
+    // user name -> time of the last write, entries expire with the read-your-writes window
+    private final Cache<String, Long> recentWriters;
+    private final int validationTimeoutSeconds;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long readYourWritesWindowMillis,
+                                    int validationTimeoutSeconds) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.healthy = new AtomicBoolean[replicas.size()];
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(readYourWritesWindowMillis, TimeUnit.MILLISECONDS)
+                .build();
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+            healthy[i] = new AtomicBoolean(true);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+
+    /**
+     * method to run a read on a replica, used by the ReadFromReplica interceptor
+     *
+     * @param read -> read which may run on a replica
+     * @return -> result of the read
+     */
+    public static <T> T readFromReplica(Supplier<T> read) {
+        Boolean previous = REPLICA_READ.get();
+        REPLICA_READ.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            if (previous == null) {
+                REPLICA_READ.remove();
+            } else {
+                REPLICA_READ.set(previous);
+            }
+        }
+    }
+
+    /**
+     * method to send the reads of the user to the primary for the read-your-writes window
+     *
+     * @param userName -> name of the user who has written
+     */
+    public void recordWrite(String userName) {
+        recentWriters.put(userName, System.currentTimeMillis());
+    }
+
+    /**
+     * method to validate every replica, replicas are used again once they are valid
+     */
+    public void checkReplicas() {
+        for (int i = 0; i < replicas.size(); i++) {
+            boolean valid;
+            try (Connection connection = replicas.get(i).getConnection()) {
+                valid = connection.isValid(validationTimeoutSeconds);
+            } catch (SQLException e) {
+                valid = false;
+            }
+            if (healthy[i].getAndSet(valid) != valid) {
+                log.warn("Replica {} is {}", i, valid ? "healthy again" : "unhealthy");
+            }
+        }
+    }
+
+    /**
+     * @return -> true if the replica is used for reads
+     */
+    public boolean isHealthy(int replica) {
+        return healthy[replica].get();
+    }
+
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        if (PRIMARY.equals(key)) {
+            return primary.getConnection();
+        }
+        int replica = (Integer) key;
+        try {
+            return replicas.get(replica).getConnection();
+        } catch (SQLException e) {
+            healthy[replica].set(false);
+            log.warn("Replica {} is unhealthy, reading from the primary: {}", replica, e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (REPLICA_READ.get() == null || replicas.isEmpty()
+                // a read inside a read-write transaction must see the writes of the transaction
+                || TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || hasWrittenRecently()) {
+            return PRIMARY;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int replica = (start + i) % replicas.size();
+            if (healthy[replica].get()) {
+                return replica;
+            }
+        }
+        return PRIMARY;
+    }
+
+    private boolean hasWrittenRecently() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && recentWriters.getIfPresent(authentication.getName()) != null;
+    }
+}
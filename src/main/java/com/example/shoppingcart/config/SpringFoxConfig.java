@@ -1,11 +1,18 @@
 package com.example.shoppingcart.config;
 
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfoHandlerMapping;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
 import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
+import springfox.documentation.spring.web.plugins.WebMvcRequestHandlerProvider;
+
+import java.lang.reflect.Field;
+import java.util.List;
 
 @Configuration
 public class SpringFoxConfig {
@@ -18,4 +25,27 @@ public class SpringFoxConfig {
           .paths(PathSelectors.any())
           .build();                                           
     }
-}
\ No newline at end of file
+
+    /**
+     * springfox can't read the actuator handler mappings, which use path patterns,
+     * so they are removed from the mappings springfox documents
+     */
+    @Bean
+    public static BeanPostProcessor springfoxHandlerProviderBeanPostProcessor() {
+        return new BeanPostProcessor() {
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof WebMvcRequestHandlerProvider) {
+                    Field field = ReflectionUtils.findField(bean.getClass(), "handlerMappings");
+                    ReflectionUtils.makeAccessible(field);
+                    List<RequestMappingInfoHandlerMapping> mappings =
+                            (List<RequestMappingInfoHandlerMapping>) ReflectionUtils.getField(field, bean);
+                    mappings.removeIf(mapping -> mapping.getPatternParser() != null);
+                }
+                return bean;
+            }
+        };
+    }
+}
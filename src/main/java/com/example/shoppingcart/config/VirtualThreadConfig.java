@@ -0,0 +1,91 @@
+package com.example.shoppingcart.config;
+
+import com.example.shoppingcart.util.VirtualThreads;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opt-in execution mode, execution.virtual-threads.enabled=true
+ * Every request (and the services and repositories it calls) runs on its own virtual thread instead of
+ * the Tomcat worker pool, async request processing (streamed exports) too, so a slow database
+ * parks cheap virtual threads instead of using up server.tomcat.threads.max
+ * Database access is then limited by the connection pool only, requests queue for a connection
+ * on ConnectionLimitingDataSource, size spring.datasource.hikari.maximum-pool-size for the database, not for the threads
+ * Needs a Java 21+ runtime, on older ones the platform thread pool is kept and a warning is logged
+ */
+@Configuration
+@ConditionalOnProperty(value = "execution.virtual-threads.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadConfig {
+
+    private final ExecutorService executor;
+
+    public VirtualThreadConfig() {
+        if (VirtualThreads.isSupported()) {
+            executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+            log.info("Requests run on virtual threads");
+        } else {
+            executor = null;
+            log.warn("execution.virtual-threads.enabled is set, but Java {} has no virtual threads, using the platform thread pool",
+                    System.getProperty("java.version"));
+        }
+    }
+
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (executor != null) {
+                protocolHandler.setExecutor(executor);
+            }
+        };
+    }
+
+    @Bean
+    public WebMvcConfigurer virtualThreadAsyncSupportConfigurer() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                if (executor != null) {
+                    configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+                }
+            }
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!VirtualThreads.isSupported() || !(bean instanceof DataSource)
+                        || bean instanceof ConnectionLimitingDataSource) {
+                    return bean;
+                }
+                DataSource dataSource = (DataSource) bean;
+                try {
+                    if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                        return bean;
+                    }
+                    HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+                    return new ConnectionLimitingDataSource(dataSource, pool.getMaximumPoolSize(), pool.getConnectionTimeout());
+                } catch (SQLException e) {
+                    return bean;
+                }
+            }
+        };
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.shoppingcart.config;
 
 import com.example.shoppingcart.security.JwtAuthenticationEntryPoint;
+import com.example.shoppingcart.accesslog.AccessLogFilter;
 import com.example.shoppingcart.security.JwtAuthenticationTokenFilter;
+import com.example.shoppingcart.security.RateLimitFilter;
 import com.example.shoppingcart.security.UserDetailsServiceImpl;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -35,19 +38,29 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
                 .and()
                 .authorizeRequests()
                 .antMatchers(HttpMethod.POST, "/product/").hasAnyAuthority("ADMIN")
+                .antMatchers(HttpMethod.POST, "/product/import").hasAnyAuthority("ADMIN")
                 .antMatchers(HttpMethod.PUT, "/product/{id}").hasAnyAuthority("ADMIN")
                 .antMatchers(HttpMethod.DELETE, "/product/{id}").hasAnyAuthority("ADMIN")
                 .antMatchers(HttpMethod.GET, "/product/view").authenticated()
                 .antMatchers(HttpMethod.GET, "/product/search").authenticated()
                 .antMatchers(HttpMethod.GET, "/product/type").authenticated()
                 .antMatchers(HttpMethod.GET, "/product/sort").authenticated()
+                .antMatchers(HttpMethod.GET, "/product/export").authenticated()
+                .antMatchers(HttpMethod.GET, "/reactive/product/**").authenticated()
                 .antMatchers(HttpMethod.PUT, "/order/{id}").hasAnyAuthority("ADMIN")
+                .antMatchers("/analytics/**").hasAnyAuthority("ADMIN")
                 .antMatchers(HttpMethod.GET, "/order/view").authenticated()
                 .antMatchers(HttpMethod.DELETE, "/order/{id}").authenticated()
                 .antMatchers(HttpMethod.POST, "/order/").authenticated()
+                .antMatchers(HttpMethod.POST, "/order/checkout").authenticated()
+                .antMatchers("/cart", "/cart/**").authenticated()
+                .antMatchers(HttpMethod.GET, "/actuator/health").permitAll()
+                .antMatchers("/actuator/**").hasAnyAuthority("ADMIN")
                 .anyRequest().permitAll();
 
         http.addFilterBefore(authenticationTokenFilterBean(), UsernamePasswordAuthenticationFilter.class);
+        http.addFilterAfter(accessLogFilterBean(), JwtAuthenticationTokenFilter.class);
+        http.addFilterAfter(rateLimitFilterBean(), AccessLogFilter.class);
 
     }
 
@@ -63,4 +76,34 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
         return new JwtAuthenticationTokenFilter();
     }
 
+    @Bean
+    public RateLimitFilter rateLimitFilterBean() {
+        return new RateLimitFilter();
+    }
+
+    @Bean
+    public AccessLogFilter accessLogFilterBean() {
+        return new AccessLogFilter();
+    }
+
+    /**
+     * the rate limit filter runs in the security filter chain only, where the user is known
+     */
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration(RateLimitFilter rateLimitFilter) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(rateLimitFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+    /**
+     * the access log filter runs in the security filter chain only, where the user is known
+     */
+    @Bean
+    public FilterRegistrationBean<AccessLogFilter> accessLogFilterRegistration(AccessLogFilter accessLogFilter) {
+        FilterRegistrationBean<AccessLogFilter> registration = new FilterRegistrationBean<>(accessLogFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
 }
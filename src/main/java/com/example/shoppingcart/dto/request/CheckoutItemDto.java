@@ -0,0 +1,19 @@
+package com.example.shoppingcart.dto.request;
+
+import lombok.*;
+
+import javax.validation.constraints.Min;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CheckoutItemDto {
+
+    @Min(value = 1, message = "Choose a product")
+    private int productId;
+    @Min(value = 1, message = "You can't order less than 1 item")
+    private int count;
+
+}
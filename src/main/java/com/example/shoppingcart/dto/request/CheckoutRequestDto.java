@@ -0,0 +1,22 @@
+package com.example.shoppingcart.dto.request;
+
+import lombok.*;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CheckoutRequestDto {
+
+    @NotEmpty(message = "Your cart is empty")
+    @Size(max = 100, message = "You can't order more than 100 products at once")
+    @Valid
+    private List<CheckoutItemDto> items;
+
+}
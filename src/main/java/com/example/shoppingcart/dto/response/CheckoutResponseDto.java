@@ -0,0 +1,22 @@
+package com.example.shoppingcart.dto.response;
+
+import com.example.shoppingcart.dto.request.CheckoutItemDto;
+import com.example.shoppingcart.entity.OrderStatus;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CheckoutResponseDto {
+
+    private String checkoutId;
+    private OrderStatus status;
+    private LocalDateTime createdDate;
+    private List<CheckoutItemDto> items;
+
+}
@@ -0,0 +1,17 @@
+package com.example.shoppingcart.dto.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportRowErrorDto {
+
+    // 1-based number of the row in the imported file, not counting the csv header
+    private long row;
+    private List<String> errors;
+}
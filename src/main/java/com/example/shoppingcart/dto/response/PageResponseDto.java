@@ -0,0 +1,21 @@
+package com.example.shoppingcart.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PageResponseDto<T> {
+
+    private List<T> items;
+    private String nextCursor;
+    // catalog version the page has been read at, a cached page keeps the ETag of its version
+    @JsonIgnore
+    private long catalogVersion;
+
+}
@@ -0,0 +1,22 @@
+package com.example.shoppingcart.dto.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductImportReportDto {
+
+    private long importedRows;
+    private long rejectedRows;
+    // first product-import.max-errors rejected rows, rejectedRows counts all of them
+    private List<ImportRowErrorDto> errors;
+    // set if the file couldn't be read to the end, rows before it are imported
+    private String abortedWith;
+    private long elapsedMillis;
+    private double rowsPerSecond;
+}
@@ -0,0 +1,25 @@
+package com.example.shoppingcart.dto.response;
+
+import com.example.shoppingcart.entity.OrderStatus;
+import com.example.shoppingcart.entity.ProductType;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SalesAnalyticsDto {
+
+    // revenue of orders awaiting for payment or delivered
+    private Map<ProductType, Double> revenueByType;
+    private Map<OrderStatus, Long> ordersByStatus;
+    // best selling products by units, ranked at rankedDate
+    private List<TopSellerDto> topSellers;
+    private LocalDateTime rankedDate;
+
+}
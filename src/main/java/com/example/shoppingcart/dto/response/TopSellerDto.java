@@ -0,0 +1,17 @@
+package com.example.shoppingcart.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TopSellerDto {
+
+    private int productId;
+    private String name;
+    private long units;
+    private double revenue;
+
+}
@@ -0,0 +1,27 @@
+package com.example.shoppingcart.dto.response;
+
+import com.example.shoppingcart.entity.OrderStatus;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Order as shown to the customer, without the customer and with only the product fields an order list needs
+ * The constructor is used by the JPQL projection of UserOrderRepository, keep its parameter order
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserOrderResponseDto {
+
+    private int id;
+    private int productId;
+    private String productName;
+    private double productPrice;
+    private int countOfProduct;
+    private String checkoutId;
+    private OrderStatus status;
+    private LocalDateTime createdDate;
+}
@@ -0,0 +1,114 @@
+package com.example.shoppingcart.endpoint;
+
+import com.example.shoppingcart.dto.request.CheckoutItemDto;
+import com.example.shoppingcart.dto.response.CheckoutResponseDto;
+import com.example.shoppingcart.exception.StockReservationException;
+import com.example.shoppingcart.metrics.ShoppingCartMetrics;
+import com.example.shoppingcart.security.CurrentUser;
+import com.example.shoppingcart.service.CartService;
+import com.example.shoppingcart.service.ProductService;
+import com.example.shoppingcart.service.UserOrderService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Cart controller which receives all cart requests and sends necessary responses
+ */
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/cart")
+@Slf4j
+public class CartEndpoint {
+
+    private final CartService cartService;
+    private final ProductService productService;
+    private final UserOrderService orderService;
+    private final ShoppingCartMetrics metrics;
+
+
+    /**
+     * endpoint to show customer his cart
+     *
+     * @param currentUser -> current customer
+     * @return -> products and their counts in the cart
+     */
+    @GetMapping("")
+    public ResponseEntity<List<CheckoutItemDto>> showCart(@AuthenticationPrincipal CurrentUser currentUser) {
+        return ResponseEntity.ok(cartService.findItems(currentUser.getUser()));
+    }
+
+
+    /**
+     * endpoint to add items of a product to the cart
+     *
+     * @param currentUser -> current customer
+     * @param productId   -> product id
+     * @param count       -> count of items to add
+     * @return -> cart after the change, if count is less than 1 returns 400, if product doesn't exist returns 404
+     */
+    @PostMapping("")
+    public ResponseEntity<List<CheckoutItemDto>> addItem(@AuthenticationPrincipal CurrentUser currentUser,
+                                                         @RequestParam("id") int productId,
+                                                         @RequestParam(value = "count", defaultValue = "1") int count) {
+        if (count < 1) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        if (!productService.exists(productId)) {
+            log.warn("Product with id {} doesn't exist", productId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return ResponseEntity.ok(cartService.addItem(currentUser.getUser(), productId, count));
+    }
+
+
+    /**
+     * endpoint to remove a product from the cart
+     *
+     * @param currentUser -> current customer
+     * @param productId   -> product id
+     * @return -> cart after the change
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<List<CheckoutItemDto>> removeItem(@AuthenticationPrincipal CurrentUser currentUser,
+                                                            @PathVariable("id") int productId) {
+        return ResponseEntity.ok(cartService.removeItem(currentUser.getUser(), productId));
+    }
+
+
+    /**
+     * endpoint to order everything in the cart at once, the ordered items are removed from the cart if ordered
+     *
+     * @param currentUser -> current customer
+     * @return -> if ordered, returns 201 with the checkout, if cart is empty returns 400,
+     *            if any product doesn't exist returns 404, if any count is more than count in stock returns 409
+     */
+    @PostMapping("/checkout")
+    public ResponseEntity<CheckoutResponseDto> checkout(@AuthenticationPrincipal CurrentUser currentUser) {
+        List<CheckoutItemDto> items = cartService.findItems(currentUser.getUser());
+        if (items.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        try {
+            CheckoutResponseDto checkout = orderService.checkout(currentUser.getUser(), items);
+            metrics.checkoutPlaced();
+            cartService.removeItems(currentUser.getUser(), items);
+            return ResponseEntity.status(HttpStatus.CREATED).body(checkout);
+        } catch (StockReservationException e) {
+            metrics.checkoutRejected();
+            if (!productService.exists(e.getProductId())) {
+                log.warn("Product with id {} doesn't exist", e.getProductId());
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+            log.warn("Checkout rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+}
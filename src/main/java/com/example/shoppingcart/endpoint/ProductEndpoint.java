@@ -1,25 +1,34 @@
 package com.example.shoppingcart.endpoint;
 
 import com.example.shoppingcart.dto.request.ProductRequestDto;
+import com.example.shoppingcart.dto.response.PageResponseDto;
+import com.example.shoppingcart.dto.response.ProductImportReportDto;
 import com.example.shoppingcart.dto.response.ProductResponseDto;
 import com.example.shoppingcart.entity.Product;
-import com.example.shoppingcart.security.CurrentUser;
+import com.example.shoppingcart.entity.ProductSortKey;
+import com.example.shoppingcart.service.CatalogVersion;
+import com.example.shoppingcart.service.ProductExportService;
+import com.example.shoppingcart.service.ProductImportService;
 import com.example.shoppingcart.service.ProductService;
+import com.example.shoppingcart.util.CursorUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
-import java.time.LocalDateTime;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Product controller which receives all product requests and sends necessary responses
@@ -31,7 +40,12 @@ import java.util.Optional;
 @Slf4j
 public class ProductEndpoint {
 
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ProductExportService productExportService;
+    private final CatalogVersion catalogVersion;
 
 
     /**
@@ -44,7 +58,6 @@ public class ProductEndpoint {
     @PostMapping("/")
     public ResponseEntity<?> save(@RequestBody @Valid ProductRequestDto createProductRequestDto,
                                   BindingResult bindingResult) {
-        log.info("New request to save a product called {}.", createProductRequestDto.getName());
         if (bindingResult.hasErrors()) {
             List<String> errors = new ArrayList<>();
             for (ObjectError error : bindingResult.getAllErrors()) {
@@ -53,11 +66,62 @@ public class ProductEndpoint {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
         }
         ProductResponseDto savedProductResponseDto = productService.save(createProductRequestDto);
-        log.info("Product {} has been saved.", savedProductResponseDto.getName());
         return ResponseEntity.status(HttpStatus.CREATED).body(savedProductResponseDto);
     }
 
 
+    /**
+     * endpoint to import many products at once from a csv or json file (ONLY FOR ADMIN)
+     * the request body is read as a stream, so files of any size can be imported
+     *
+     * @param request     -> request with the file as body, Content-Type text/csv or application/json
+     * @return -> report with counts of imported and rejected rows, errors of rejected rows and rows per second
+     */
+    @PostMapping(value = "/import", consumes = {TEXT_CSV_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<ProductImportReportDto> importProducts(HttpServletRequest request) throws IOException {
+        ProductImportService.Format format = MediaType.parseMediaType(request.getContentType())
+                .isCompatibleWith(MediaType.APPLICATION_JSON) ? ProductImportService.Format.JSON : ProductImportService.Format.CSV;
+        return ResponseEntity.ok(productImportService.importProducts(request.getInputStream(), format));
+    }
+
+
+    /**
+     * endpoint to download the whole catalog, products are written to the response while they are read
+     *
+     * @param format -> jsonl (default) or csv
+     * @param gzip   -> if true, the file is gzip compressed
+     * @return -> all products ordered by id, if format is unknown returns 400
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(value = "format", defaultValue = "jsonl") String format,
+                                                                @RequestParam(value = "gzip", defaultValue = "false") boolean gzip) {
+        ProductExportService.Format exportFormat;
+        try {
+            exportFormat = ProductExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warn("Wrong export format {}", format);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        String fileName = "products." + exportFormat.name().toLowerCase() + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+                : exportFormat == ProductExportService.Format.CSV ? MediaType.parseMediaType(TEXT_CSV_VALUE)
+                : MediaType.parseMediaType("application/x-ndjson");
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, 8192);
+                productExportService.export(gzipOut, exportFormat);
+                gzipOut.finish();
+            } else {
+                productExportService.export(out, exportFormat);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
+
     /**
      * endpoint to update the product(ONLY FOR ADMIN)
      *
@@ -69,9 +133,7 @@ public class ProductEndpoint {
     @PutMapping("/{id}")
     public ResponseEntity<?> update(@PathVariable("id") int productId,
                                     @RequestBody @Valid ProductRequestDto updateProductRequestDto,
-                                    BindingResult bindingResult,
-                                    @AuthenticationPrincipal CurrentUser currentUser) {
-        log.info("Admin {} wants to update product", currentUser.getUser().getEmail());
+                                    BindingResult bindingResult) {
         if (bindingResult.hasErrors()) {
             List<String> errors = new ArrayList<>();
             for (ObjectError error : bindingResult.getAllErrors()) {
@@ -85,7 +147,6 @@ public class ProductEndpoint {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
         ProductResponseDto productResponseDto = productService.update(optProduct.get(), updateProductRequestDto);
-        log.info("Product {} has been updated on {}, by Admin {}", productResponseDto.getName(), productResponseDto.getUpdatedDate(), currentUser.getUser().getEmail());
         return ResponseEntity.ok(productResponseDto);
     }
 
@@ -97,85 +158,113 @@ public class ProductEndpoint {
      * @return -> if removed, returns 200, if not returns 404
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<String> remove(@PathVariable("id") int productId,
-                                         @AuthenticationPrincipal CurrentUser currentUser) {
-        log.info("ADMIN {} wants to remove a product", currentUser.getUser().getEmail());
+    public ResponseEntity<String> remove(@PathVariable("id") int productId) {
         Optional<Product> optProduct = productService.findById(productId);
         if (!optProduct.isPresent()) {
             log.warn("Product with id {} doesn't exist", productId);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
         productService.delete(optProduct.get());
-        log.info("Product has been removed on {} by Admin {}", LocalDateTime.now(), currentUser.getUser().getEmail());
         return ResponseEntity.ok().build();
     }
 
 
     /**
-     * endpoint to show all products
+     * endpoint to show all products, page by page
      *
-     * @return -> list of existing products
+     * @param cursor -> continuation token of the previous page, missing for the first page
+     * @param size        -> page size
+     * @param ifNoneMatch -> ETag of the page the client already has
+     * @return -> page of existing products, 304 if the catalog hasn't changed since, if cursor is invalid returns 400
      */
     @GetMapping("/view")
-    public List<ProductResponseDto> getAll(@AuthenticationPrincipal CurrentUser currentUser) {
-        log.info("User {}: request to see all products", currentUser.getUser().getEmail());
-        return productService.findAll();
+    public ResponseEntity<PageResponseDto<ProductResponseDto>> getAll(@RequestParam(value = "cursor", required = false) String cursor,
+                                                                      @RequestParam(value = "size", defaultValue = CursorUtil.DEFAULT_PAGE_SIZE) int size,
+                                                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (notModified(ifNoneMatch, catalogVersion.current())) {
+            return notModified();
+        }
+        try {
+            PageResponseDto<ProductResponseDto> products = productService.findAll(cursor, size);
+            return conditional(ifNoneMatch, products.getCatalogVersion(), products);
+        } catch (IllegalArgumentException e) {
+            log.warn("Wrong cursor: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
     }
 
     /**
-     * endpoint to show all products by product type
+     * endpoint to show all products by product type, page by page
      *
-     * @param type -> type, chosen by customer
-     * @return -> list of existing products of chosen type
+     * @param type   -> type, chosen by customer
+     * @param cursor -> continuation token of the previous page, missing for the first page
+     * @param size        -> page size
+     * @param ifNoneMatch -> ETag of the page the client already has
+     * @return -> page of existing products of chosen type, 304 if the catalog hasn't changed since
      */
     @GetMapping("/type")
-    public ResponseEntity<List<ProductResponseDto>> getAllByType(@RequestParam("t") String type,
-                                                                 @AuthenticationPrincipal CurrentUser currentUser) {
+    public ResponseEntity<PageResponseDto<ProductResponseDto>> getAllByType(@RequestParam("t") String type,
+                                                                            @RequestParam(value = "cursor", required = false) String cursor,
+                                                                            @RequestParam(value = "size", defaultValue = CursorUtil.DEFAULT_PAGE_SIZE) int size,
+                                                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (notModified(ifNoneMatch, catalogVersion.current())) {
+            return notModified();
+        }
         try {
-            log.info("User {}: request to see products of type /{}/", currentUser.getUser().getEmail(), type);
-            List<ProductResponseDto> productsByType = productService.findByType(type);
-            if (productsByType.isEmpty()) {
+            PageResponseDto<ProductResponseDto> productsByType = productService.findByType(type, cursor, size);
+            if (productsByType.getItems().isEmpty() && cursor == null) {
                 log.warn("There is no product of type /{}/", type);
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
             }
-            log.info("{} products of type /{}/ have been found", productsByType.size(), type);
-            return ResponseEntity.ok(productsByType);
+            return conditional(ifNoneMatch, productsByType.getCatalogVersion(), productsByType);
         } catch (Exception e) {
-            log.error("Wrong type: {}", e.getMessage());
+            log.error("Wrong type or cursor: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         }
     }
 
     /**
-     * endpoint to show sorted products by product type
+     * endpoint to show sorted products by product type, page by page
      *
      * @param type    -> type, chosen by customer
      * @param sortStr -> sorting(name,price,createdDate)
      * @param dir     -> direction of sorting(ASC, DESC)
-     * @return -> sorted list of existing products of chosen type
+     * @param cursor  -> continuation token of the previous page, missing for the first page
+     * @param size        -> page size
+     * @param ifNoneMatch -> ETag of the page the client already has
+     * @return -> sorted page of existing products of chosen type, 304 if the catalog hasn't changed since
      */
     @GetMapping("/sort")
-    public ResponseEntity<List<ProductResponseDto>> getSortedByType(@RequestParam("t") String type,
-                                                                    @RequestParam("s") String sortStr,
-                                                                    @RequestParam("d") String dir,
-                                                                    @AuthenticationPrincipal CurrentUser currentUser) {
-        log.info("User {}: request to see products of type {}, sorted by {}, {}", currentUser.getUser().getEmail(), type, sortStr, dir);
-        Sort sort;
+    public ResponseEntity<PageResponseDto<ProductResponseDto>> getSortedByType(@RequestParam("t") String type,
+                                                                               @RequestParam("s") String sortStr,
+                                                                               @RequestParam("d") String dir,
+                                                                               @RequestParam(value = "cursor", required = false) String cursor,
+                                                                               @RequestParam(value = "size", defaultValue = CursorUtil.DEFAULT_PAGE_SIZE) int size,
+                                                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (notModified(ifNoneMatch, catalogVersion.current())) {
+            return notModified();
+        }
+        boolean ascending;
         if (dir.equals("asc")) {
-            sort = Sort.by(sortStr).ascending();
+            ascending = true;
         } else if (dir.equals("desc")) {
-            sort = Sort.by(sortStr).descending();
+            ascending = false;
         } else {
             log.warn("Wrong sorting direction: {}", dir);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
-        List<ProductResponseDto> productsByType = productService.findByTypeSorted(type, sort);
-        if (productsByType.isEmpty()) {
+        PageResponseDto<ProductResponseDto> productsByType;
+        try {
+            productsByType = productService.findByTypeSorted(type, ProductSortKey.fromProperty(sortStr), ascending, cursor, size);
+        } catch (IllegalArgumentException e) {
+            log.warn("Wrong type, sorting or cursor: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        if (productsByType.getItems().isEmpty() && cursor == null) {
             log.warn("No products of type {} found", type);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
-        log.info("{} products of type {} found", productsByType.size(), type);
-        return ResponseEntity.ok(productsByType);
+        return conditional(ifNoneMatch, productsByType.getCatalogVersion(), productsByType);
 
     }
 
@@ -183,22 +272,52 @@ public class ProductEndpoint {
     /**
      * endpoint to search a product by keyword
      *
-     * @param keyword -> keyword written by customer
-     * @return -> if found, returns list of products, if not returns 404
+     * @param keyword     -> keyword written by customer
+     * @param ifNoneMatch -> ETag of the result the client already has
+     * @return -> if found, returns list of products, 304 if the catalog hasn't changed since, if not found returns 404
      */
     @GetMapping("/search")
     public ResponseEntity<List<ProductResponseDto>> search(@RequestParam("q") String keyword,
-                                                           @AuthenticationPrincipal CurrentUser currentUser) {
-        log.info("User {}: request to find product by keyword /{}/", currentUser.getUser().getEmail(), keyword);
+                                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        long version = catalogVersion.current();
+        if (notModified(ifNoneMatch, version)) {
+            return notModified();
+        }
         List<ProductResponseDto> products = productService.findByKeyword(keyword);
         if (products.isEmpty()) {
             log.warn("No products found with keyword /{}/", keyword);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
-        log.info("{} products found by keyword /{}/", products.size(), keyword);
 
-        return ResponseEntity.ok(products);
+        return conditional(ifNoneMatch, version, products);
+
+    }
+
 
+    /**
+     * @param ifNoneMatch -> If-None-Match header, may list several ETags
+     * @param version     -> catalog version of the response
+     * @return -> true if the client already has the response of this catalog version
+     */
+    private boolean notModified(String ifNoneMatch, long version) {
+        return ifNoneMatch != null
+                && (ifNoneMatch.trim().equals("*") || ifNoneMatch.contains(catalogVersion.etag(version)));
+    }
+
+    private <T> ResponseEntity<T> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(catalogVersion.etag(catalogVersion.current())).build();
+    }
+
+    /**
+     * method to answer with the read response, or 304 if it was read at the version the client already has,
+     * e.g. a cached page read before the last change of the catalog
+     */
+    private <T> ResponseEntity<T> conditional(String ifNoneMatch, long version, T body) {
+        String etag = catalogVersion.etag(version);
+        if (notModified(ifNoneMatch, version)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(body);
     }
 
 }
@@ -0,0 +1,135 @@
+package com.example.shoppingcart.endpoint;
+
+import com.example.shoppingcart.dto.response.ProductResponseDto;
+import com.example.shoppingcart.entity.ProductSortKey;
+import com.example.shoppingcart.entity.ProductType;
+import com.example.shoppingcart.repository.ReactiveProductRepository;
+import com.example.shoppingcart.search.ProductSearchIndex;
+import com.example.shoppingcart.util.CursorUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming alternative to the catalog reads of ProductEndpoint
+ * Products are read with r2dbc and written as newline delimited json while they arrive,
+ * the request thread is released as soon as the query is started
+ * It is served by Spring MVC on the servlet stack, not by WebFlux, so only the query is non-blocking:
+ * each product is written with a blocking servlet write on the r2dbc thread delivering it, a slow client holds that thread
+ * Streams are bounded by CursorUtil.MAX_PAGE_SIZE products, concurrent streams by reactive-catalog.pool.max-size
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/reactive/product")
+@Slf4j
+public class ReactiveProductEndpoint {
+
+    private static final String DEFAULT_LIMIT = "" + CursorUtil.MAX_PAGE_SIZE;
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final ReactiveProductRepository reactiveProductRepository;
+    private final ProductSearchIndex searchIndex;
+
+
+    /**
+     * endpoint to stream all products
+     *
+     * @param limit -> max count of products, capped by CursorUtil.MAX_PAGE_SIZE
+     * @return -> existing products ordered by id
+     */
+    @GetMapping("/view")
+    public ResponseEntity<Flux<ProductResponseDto>> getAll(@RequestParam(value = "limit", defaultValue = DEFAULT_LIMIT) int limit) {
+        if (limit < 1) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        return ndjson(reactiveProductRepository.findAll(CursorUtil.pageSize(limit)));
+    }
+
+    /**
+     * endpoint to stream all products by product type
+     *
+     * @param type  -> type, chosen by customer
+     * @param limit -> max count of products, capped by CursorUtil.MAX_PAGE_SIZE
+     * @return -> existing products of chosen type, if type is wrong returns 400
+     */
+    @GetMapping("/type")
+    public ResponseEntity<Flux<ProductResponseDto>> getAllByType(@RequestParam("t") String type,
+                                                                 @RequestParam(value = "limit", defaultValue = DEFAULT_LIMIT) int limit) {
+        ProductType productType;
+        try {
+            productType = ProductType.valueOf(type);
+        } catch (IllegalArgumentException e) {
+            log.warn("Wrong type /{}/", type);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        if (limit < 1) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        return ndjson(reactiveProductRepository.findByType(productType, CursorUtil.pageSize(limit)));
+    }
+
+    /**
+     * endpoint to stream sorted products by product type
+     *
+     * @param type    -> type, chosen by customer
+     * @param sortStr -> sorting(name,price,createdDate)
+     * @param dir     -> direction of sorting(asc, desc)
+     * @param limit   -> max count of products, capped by CursorUtil.MAX_PAGE_SIZE
+     * @return -> sorted products of chosen type, if type, sorting or direction is wrong returns 400
+     */
+    @GetMapping("/sort")
+    public ResponseEntity<Flux<ProductResponseDto>> getSortedByType(@RequestParam("t") String type,
+                                                                    @RequestParam("s") String sortStr,
+                                                                    @RequestParam("d") String dir,
+                                                                    @RequestParam(value = "limit", defaultValue = DEFAULT_LIMIT) int limit) {
+        if (!dir.equals("asc") && !dir.equals("desc") || limit < 1) {
+            log.warn("Wrong sorting direction {} or limit {}", dir, limit);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        try {
+            return ndjson(reactiveProductRepository.findByTypeSorted(ProductType.valueOf(type),
+                    ProductSortKey.fromProperty(sortStr), dir.equals("asc"), CursorUtil.pageSize(limit)));
+        } catch (IllegalArgumentException e) {
+            log.warn("Wrong type or sorting: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
+    /**
+     * endpoint to search products by keyword
+     *
+     * @param keyword -> keyword written by customer
+     * @return -> the CursorUtil.MAX_PAGE_SIZE most relevant matching products, most relevant first, if nothing matches returns 404
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Flux<ProductResponseDto>> search(@RequestParam("q") String keyword) {
+        List<Integer> productIds = searchIndex.search(keyword, CursorUtil.MAX_PAGE_SIZE);
+        if (productIds.isEmpty()) {
+            log.warn("No products found with keyword /{}/", keyword);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        Map<Integer, Integer> rank = new HashMap<>(productIds.size() * 2);
+        for (int i = 0; i < productIds.size(); i++) {
+            rank.put(productIds.get(i), i);
+        }
+        // the database returns the products in any order, relevance order is restored in memory
+        return ndjson(reactiveProductRepository.findAllById(productIds)
+                .sort((a, b) -> Integer.compare(rank.get(a.getId()), rank.get(b.getId()))));
+    }
+
+
+    private static ResponseEntity<Flux<ProductResponseDto>> ndjson(Flux<ProductResponseDto> products) {
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(products);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.shoppingcart.endpoint;
+
+import com.example.shoppingcart.dto.response.SalesAnalyticsDto;
+import com.example.shoppingcart.service.SalesAnalyticsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Sales analytics controller (ONLY FOR ADMIN)
+ */
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/analytics/sales")
+public class SalesAnalyticsEndpoint {
+
+    private final SalesAnalyticsService salesAnalyticsService;
+
+
+    /**
+     * endpoint to show revenue per product type, order counts per status and top sellers
+     *
+     * @return -> sales analytics, read from the rollups, top sellers as of their last ranking
+     */
+    @GetMapping("")
+    public ResponseEntity<SalesAnalyticsDto> getAnalytics() {
+        return ResponseEntity.ok(salesAnalyticsService.analytics());
+    }
+
+    /**
+     * endpoint to recompute the rollups from all orders, to recover from lost or drifted rollups
+     *
+     * @return -> sales analytics of the rebuilt rollups
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<SalesAnalyticsDto> rebuild() {
+        return ResponseEntity.ok(salesAnalyticsService.rebuild());
+    }
+}
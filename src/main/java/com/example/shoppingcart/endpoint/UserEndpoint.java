@@ -4,12 +4,14 @@ import com.example.shoppingcart.dto.request.CreateUserRequestDto;
 import com.example.shoppingcart.dto.request.UserLoginRequestDto;
 import com.example.shoppingcart.dto.response.UserResponseDto;
 import com.example.shoppingcart.entity.User;
+import com.example.shoppingcart.exception.PasswordHashingRejectedException;
+import com.example.shoppingcart.service.PasswordHashingService;
 import com.example.shoppingcart.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -34,7 +36,7 @@ import java.util.Optional;
 public class UserEndpoint {
 
     private final UserService userService;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
 
 
     /**
@@ -45,10 +47,10 @@ public class UserEndpoint {
      *                            if email is not empty and user with that email exists, checks the password, if not returns 401
      *                            if passwords don't match, returns 401
      *                            else generates jw token and returns the user
+     *                            if password hashing is saturated, returns 503 with Retry-After
      */
     @PostMapping("/auth")
     public ResponseEntity<?> login(@RequestBody @Valid UserLoginRequestDto userLoginRequestDto, BindingResult bindingResult) {
-        log.info("Request from {} to sign in", userLoginRequestDto.getEmail());
         if (bindingResult.hasErrors()) {
             List<String> errors = new ArrayList<>();
             for (ObjectError error : bindingResult.getAllErrors()) {
@@ -58,11 +60,15 @@ public class UserEndpoint {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
         }
         Optional<User> optUser = userService.findByEmail(userLoginRequestDto.getEmail());
-        if (!optUser.isPresent() || !passwordEncoder.matches(userLoginRequestDto.getPassword(), optUser.get().getPassword())) {
-            log.warn("No user found with email {} and request password", userLoginRequestDto.getEmail());
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        try {
+            if (!optUser.isPresent() || !passwordHashingService.matches(userLoginRequestDto.getPassword(), optUser.get().getPassword())) {
+                log.warn("No user found with email {} and request password", userLoginRequestDto.getEmail());
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+        } catch (PasswordHashingRejectedException e) {
+            log.warn("Sign in of {} rejected: {}", userLoginRequestDto.getEmail(), e.getMessage());
+            return serviceUnavailable(e);
         }
-        log.warn("User {} got a token and signed in", userLoginRequestDto.getEmail());
         return ResponseEntity.ok(userService.login(optUser.get()));
 
 
@@ -76,11 +82,11 @@ public class UserEndpoint {
      * @param createUserRequestDto -> new user data
      * @return -> if there are errors while filling fields, returns 400
      *            if email already exists, returns 409
+     *            if password hashing is saturated, returns 503 with Retry-After
      *            else returns 200 and user response dto
      */
     @PostMapping("/")
     public ResponseEntity<?> register(@RequestBody @Valid CreateUserRequestDto createUserRequestDto, BindingResult bindingResult) throws ParseException {
-        log.info("Request to get registered: email {}", createUserRequestDto.getEmail());
         if (bindingResult.hasErrors()) {
             List<String> errors = new ArrayList<>();
             for (ObjectError error : bindingResult.getAllErrors()) {
@@ -93,10 +99,21 @@ public class UserEndpoint {
             log.warn("User with email {} already exists", createUserRequestDto.getEmail());
             return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
-        UserResponseDto userResponseDto = userService.save(createUserRequestDto);
-        log.info("User {} has been registered successfully", userResponseDto.getEmail());
-        return ResponseEntity.status(HttpStatus.CREATED).body(userResponseDto);
+        try {
+            UserResponseDto userResponseDto = userService.save(createUserRequestDto);
+            return ResponseEntity.status(HttpStatus.CREATED).body(userResponseDto);
+        } catch (PasswordHashingRejectedException e) {
+            log.warn("Registration of {} rejected: {}", createUserRequestDto.getEmail(), e.getMessage());
+            return serviceUnavailable(e);
+        }
+
+    }
+
 
+    private ResponseEntity<?> serviceUnavailable(PasswordHashingRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .build();
     }
 
 }
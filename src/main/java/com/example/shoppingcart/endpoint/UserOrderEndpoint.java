@@ -1,18 +1,29 @@
 package com.example.shoppingcart.endpoint;
 
+import com.example.shoppingcart.dto.request.CheckoutRequestDto;
+import com.example.shoppingcart.dto.response.CheckoutResponseDto;
+import com.example.shoppingcart.dto.response.PageResponseDto;
+import com.example.shoppingcart.dto.response.UserOrderResponseDto;
 import com.example.shoppingcart.entity.OrderStatus;
-import com.example.shoppingcart.entity.Product;
 import com.example.shoppingcart.entity.UserOrder;
+import com.example.shoppingcart.exception.StockReservationException;
+import com.example.shoppingcart.mapper.UserOrderMapper;
+import com.example.shoppingcart.metrics.ShoppingCartMetrics;
 import com.example.shoppingcart.security.CurrentUser;
 import com.example.shoppingcart.service.ProductService;
 import com.example.shoppingcart.service.UserOrderService;
+import com.example.shoppingcart.util.CursorUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.annotation.*;
 
+import javax.validation.Valid;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,31 +39,39 @@ public class UserOrderEndpoint {
 
     private final UserOrderService orderService;
     private final ProductService productService;
+    private final ShoppingCartMetrics metrics;
+    private final UserOrderMapper orderMapper;
 
 
     /**
-     * endpoint to show customer his orders
+     * endpoint to show customer his orders, page by page
      *
      * @param currentUser -> current customer
-     * @return -> list of customer orders
+     * @param cursor      -> continuation token of the previous page, missing for the first page
+     * @param size        -> page size
+     * @return -> page of customer orders, if cursor is invalid returns 400
      */
     @GetMapping("")
-    public List<UserOrder> showCustomerOrders(@AuthenticationPrincipal CurrentUser currentUser) {
-        log.info("User {}: request to see customer orders.", currentUser.getUser().getEmail());
-        return orderService.findUserOrders(currentUser.getUser());
+    public ResponseEntity<PageResponseDto<UserOrderResponseDto>> showCustomerOrders(@AuthenticationPrincipal CurrentUser currentUser,
+                                                                                    @RequestParam(value = "cursor", required = false) String cursor,
+                                                                                    @RequestParam(value = "size", defaultValue = CursorUtil.DEFAULT_PAGE_SIZE) int size) {
+        try {
+            return ResponseEntity.ok(orderService.findUserOrders(currentUser.getUser(), cursor, size));
+        } catch (IllegalArgumentException e) {
+            log.warn("Wrong cursor: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
     }
 
     /**
-     * @param orderId     -> customer order id
-     * @param currentUser -> customer as principal
+     * @param orderId -> customer order id
      * @return -> if order doesn't exist returns 404, if found return 200 with the order
      */
     @GetMapping("/{id}")
-    public ResponseEntity<UserOrder> findById(@PathVariable("id") int orderId,
-                                              @AuthenticationPrincipal CurrentUser currentUser) {
-        log.info("User {}: request to see a single order", currentUser.getUser().getEmail());
+    public ResponseEntity<UserOrderResponseDto> findById(@PathVariable("id") int orderId) {
         Optional<UserOrder> optOrder = orderService.findById(orderId);
-        return optOrder.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+        return optOrder.map(order -> ResponseEntity.ok(orderMapper.toDto(order)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
     }
 
 
@@ -62,24 +81,61 @@ public class UserOrderEndpoint {
      * @param currentUser    -> current customer
      * @param productId      -> order product id
      * @param countOfProduct -> count of products in order
-     * @return -> if saved, returns the order, if not returns 404
+     * @return -> if saved, returns the order, if product doesn't exist returns 404,
+     *            if count of product in order is more than count in stock returns 409
      */
     @PostMapping("")
-    public ResponseEntity<UserOrder> save(@AuthenticationPrincipal CurrentUser currentUser,
-                                          @RequestParam("id") int productId,
-                                          @RequestParam("count") int countOfProduct) {
-        log.info("User {} wants to create a new order", currentUser.getUser().getEmail());
-        Optional<Product> productById = productService.findById(productId);
-        if (!productById.isPresent() ||
-                productById.get().getCountInStock() == 0 ||
-                productById.get().getCountInStock() < countOfProduct) {
-            log.warn("Product doesn't exist or the count of product in order is more than count in stock");
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    public ResponseEntity<UserOrderResponseDto> save(@AuthenticationPrincipal CurrentUser currentUser,
+                                                     @RequestParam("id") int productId,
+                                                     @RequestParam("count") int countOfProduct) {
+        try {
+            UserOrder newOrder = orderService.save(currentUser.getUser(), productId, countOfProduct);
+            metrics.orderPlaced();
+            return ResponseEntity.ok(orderMapper.toDto(newOrder));
+        } catch (StockReservationException e) {
+            metrics.orderRejected();
+            if (!productService.exists(productId)) {
+                log.warn("Product with id {} doesn't exist", productId);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+            log.warn("Order rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+
+    /**
+     * endpoint to order several products at once, either all of them are ordered or none
+     *
+     * @param currentUser        -> current customer
+     * @param checkoutRequestDto -> products and their counts
+     * @return -> if ordered, returns 201 with the checkout, if request is invalid returns 400 with errors,
+     *            if any product doesn't exist returns 404, if any count is more than count in stock returns 409
+     */
+    @PostMapping("/checkout")
+    public ResponseEntity<?> checkout(@AuthenticationPrincipal CurrentUser currentUser,
+                                      @RequestBody @Valid CheckoutRequestDto checkoutRequestDto,
+                                      BindingResult bindingResult) {
+        if (bindingResult.hasErrors()) {
+            List<String> errors = new ArrayList<>();
+            for (ObjectError error : bindingResult.getAllErrors()) {
+                errors.add(error.getDefaultMessage());
+            }
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
+        }
+        try {
+            CheckoutResponseDto checkout = orderService.checkout(currentUser.getUser(), checkoutRequestDto.getItems());
+            metrics.checkoutPlaced();
+            return ResponseEntity.status(HttpStatus.CREATED).body(checkout);
+        } catch (StockReservationException e) {
+            metrics.checkoutRejected();
+            if (!productService.exists(e.getProductId())) {
+                log.warn("Product with id {} doesn't exist", e.getProductId());
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+            log.warn("Checkout rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
-        Product product = productById.get();
-        UserOrder newOrder = orderService.save(currentUser.getUser(), product, countOfProduct);
-        log.info("New order has been created for user {}", currentUser.getUser().getEmail());
-        return ResponseEntity.ok(newOrder);
     }
 
 
@@ -90,20 +146,18 @@ public class UserOrderEndpoint {
      * @return -> if removed, returns 200, if not returns 404
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<UserOrder> delete(@PathVariable("id") int orderId,
-                                            @AuthenticationPrincipal CurrentUser currentUser) {
-        log.info("User {} wants to remove an order", currentUser.getUser().getEmail());
+    public ResponseEntity<Void> delete(@PathVariable("id") int orderId,
+                                       @AuthenticationPrincipal CurrentUser currentUser) {
         Optional<UserOrder> optOrder = orderService.findById(orderId);
         if (!optOrder.isPresent()) {
             log.warn("No order found by id {}", orderId);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
-        if (!optOrder.get().getUser().equals(currentUser.getUser())) {
-            log.warn("User {} wanted to remove user {} order", currentUser.getUser().getEmail(), optOrder.get().getUser().getEmail());
+        if (optOrder.get().getUser().getId() != currentUser.getUser().getId()) {
+            log.warn("User {} wanted to remove order {} of another user", currentUser.getUser().getEmail(), orderId);
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
         orderService.delete(optOrder.get());
-        log.info("User {} removed the order", currentUser.getUser().getEmail());
         return ResponseEntity.ok().build();
     }
 
@@ -116,20 +170,16 @@ public class UserOrderEndpoint {
      * @return if ok, returns 200, if not returns 404;
      */
     @PutMapping("/{id}")
-    public ResponseEntity<UserOrder> changeStatus(@PathVariable("id") int orderId,
-                                                  @RequestParam("status") String newStatus,
-                                                  @AuthenticationPrincipal CurrentUser currentUser) {
-        log.info("Admin {} wants to change order status to {}", currentUser.getUser().getEmail(), newStatus);
+    public ResponseEntity<UserOrderResponseDto> changeStatus(@PathVariable("id") int orderId,
+                                                             @RequestParam("status") String newStatus) {
         Optional<UserOrder> optOrder = orderService.findById(orderId);
         if (!optOrder.isPresent() || optOrder.get().getStatus().equals(OrderStatus.DELIVERED)) {
             log.warn("No active order found by id {}", orderId);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
         UserOrder order = optOrder.get();
-        String oldStatus = order.getStatus().name();
         UserOrder userOrder = orderService.changeStatus(order, newStatus);
-        log.info("Order status has been changed from {} to {}", oldStatus, newStatus);
-        return ResponseEntity.ok(userOrder);
+        return ResponseEntity.ok(orderMapper.toDto(userOrder));
 
     }
 
@@ -0,0 +1,28 @@
+package com.example.shoppingcart.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+
+/**
+ * Persisted line of a customer cart, carts live in memory and are written here by CartService
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "cart_items")
+public class CartItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+    @ManyToOne(fetch = FetchType.LAZY)
+    private User user;
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Product product;
+    private int countOfProduct;
+
+}
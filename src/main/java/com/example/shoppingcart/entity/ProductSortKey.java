@@ -0,0 +1,50 @@
+package com.example.shoppingcart.entity;
+
+import java.util.Date;
+import java.util.function.Function;
+
+/**
+ * Product properties the catalog can be sorted by
+ */
+public enum ProductSortKey {
+
+    NAME("name", String.class, Product::getName),
+    PRICE("price", Double.class, Product::getPrice),
+    CREATED_DATE("createdDate", Date.class, Product::getCreatedDate);
+
+    private final String property;
+    private final Class<?> type;
+    private final Function<Product, Object> getter;
+
+    ProductSortKey(String property, Class<?> type, Function<Product, Object> getter) {
+        this.property = property;
+        this.type = type;
+        this.getter = getter;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public Object valueOf(Product product) {
+        return getter.apply(product);
+    }
+
+    /**
+     * @param property -> property name(name, price, createdDate)
+     * @return -> sort key of the property
+     * @throws IllegalArgumentException -> if products can't be sorted by the property
+     */
+    public static ProductSortKey fromProperty(String property) {
+        for (ProductSortKey sortKey : values()) {
+            if (sortKey.property.equals(property)) {
+                return sortKey;
+            }
+        }
+        throw new IllegalArgumentException("Products can't be sorted by " + property);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.shoppingcart.entity;
+
+import lombok.*;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * Persisted copy of one sales rollup of SalesAnalyticsService, written periodically, read at startup
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "sales_rollup")
+public class SalesRollup {
+
+    // TYPE:<product type>, PRODUCT:<product id> or STATUS:<order status>
+    @Id
+    private String name;
+    private long orders;
+    private long units;
+    private double revenue;
+    private LocalDateTime updatedDate;
+
+}
@@ -0,0 +1,32 @@
+package com.example.shoppingcart.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Items of a hot product taken out of its stock by one node, see StockLeaseService
+ * units are the items not ordered yet, orders decrement them in their own transaction,
+ * so a lease left behind by a crashed node still knows what to give back once it expires
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "stock_lease", indexes = @Index(name = "stock_lease_expires_at", columnList = "expiresAt"))
+public class StockLease {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+    private int productId;
+    // node which claimed the lease
+    private String owner;
+    private int units;
+    private LocalDateTime createdDate;
+    private LocalDateTime expiresAt;
+
+}
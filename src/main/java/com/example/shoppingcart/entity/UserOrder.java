@@ -18,10 +18,13 @@ public class UserOrder {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private int id;
-    @OneToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private User user;
-    @OneToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Product product;
+    private int countOfProduct;
+    // orders placed together by one checkout share the same checkout id
+    private String checkoutId;
     @Enumerated(EnumType.STRING)
     private OrderStatus status;
     @DateTimeFormat
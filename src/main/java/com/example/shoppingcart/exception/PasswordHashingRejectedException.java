@@ -0,0 +1,18 @@
+package com.example.shoppingcart.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when the password hashing pool is saturated (or the hash didn't finish in time),
+ * so the request must be retried later
+ */
+@Getter
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingRejectedException(long retryAfterSeconds, Throwable cause) {
+        super("Password hashing is saturated, retry after " + retryAfterSeconds + " seconds", cause);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
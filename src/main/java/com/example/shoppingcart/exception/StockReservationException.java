@@ -0,0 +1,20 @@
+package com.example.shoppingcart.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when the stock of a product can't cover the requested count
+ * (or the product doesn't exist), so the order must be rejected
+ */
+@Getter
+public class StockReservationException extends RuntimeException {
+
+    private final int productId;
+    private final int requestedCount;
+
+    public StockReservationException(int productId, int requestedCount) {
+        super("Can't reserve " + requestedCount + " items of product " + productId);
+        this.productId = productId;
+        this.requestedCount = requestedCount;
+    }
+}
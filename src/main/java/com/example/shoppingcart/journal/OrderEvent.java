@@ -0,0 +1,44 @@
+package com.example.shoppingcart.journal;
+
+import com.example.shoppingcart.entity.OrderStatus;
+import com.example.shoppingcart.entity.UserOrder;
+import lombok.*;
+
+/**
+ * One order lifecycle change, as stored in the order journal
+ * sequence and timestamp are assigned by the journal when the event is appended
+ */
+@Getter
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@ToString
+public class OrderEvent {
+
+    private final long sequence;
+    private final long timestamp;
+    private final OrderEventType type;
+    private final int orderId;
+    private final int userId;
+    private final int productId;
+    private final int countOfProduct;
+    private final OrderStatus status;
+    private final String checkoutId;
+
+
+    /**
+     * @param type  -> what happened to the order
+     * @param order -> order after the change
+     * @return -> event to append, user and product are not loaded, only their ids are read
+     */
+    public static OrderEvent of(OrderEventType type, UserOrder order) {
+        return OrderEvent.builder()
+                .type(type)
+                .orderId(order.getId())
+                .userId(order.getUser().getId())
+                .productId(order.getProduct().getId())
+                .countOfProduct(order.getCountOfProduct())
+                .status(order.getStatus())
+                .checkoutId(order.getCheckoutId())
+                .build();
+    }
+}
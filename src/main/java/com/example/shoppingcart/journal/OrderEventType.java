@@ -0,0 +1,13 @@
+package com.example.shoppingcart.journal;
+
+/**
+ * Order lifecycle changes recorded in the order journal
+ * new types must be added at the end, the journal stores the ordinal
+ */
+public enum OrderEventType {
+
+    CREATED,
+    STATUS_CHANGED,
+    DELETED
+
+}
@@ -0,0 +1,382 @@
+package com.example.shoppingcart.journal;
+
+import com.example.shoppingcart.entity.OrderStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of order lifecycle events, so other systems can follow orders without polling user_orders
+ * Events get gapless sequence numbers starting from 1 and are written to memory mapped segment files,
+ * named by the sequence of their first event. A new segment is started when an event doesn't fit the current one
+ * Record layout: length(int, whole record), crc32 of the body(int), then the body:
+ * sequence(long), timestamp(long, epoch ms), type(byte), order id(int), user id(int), product id(int),
+ * count of product(int), status(byte, -1 for none), checkout id length(short, -1 for none), checkout id(utf-8)
+ * The length is written last, so a record with zero length or a wrong crc is not written yet
+ * Mapped pages survive a crash of the process, they are flushed to disk every sync-interval,
+ * so an operating system crash may lose the events of the last interval
+ */
+@Component
+@Slf4j
+public class OrderJournal {
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final int HEADER_SIZE = 8;
+    private static final int FIXED_BODY_SIZE = 8 + 8 + 1 + 4 + 4 + 4 + 4 + 1 + 2;
+    private static final OrderEventType[] TYPES = OrderEventType.values();
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private final Path directory;
+    private final int segmentSize;
+    // first sequence of the segment -> segment file
+    private final NavigableMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long nextSequence;
+    private boolean dirty;
+    // readers never read past the last published sequence
+    private volatile long lastSequence;
+
+    public OrderJournal(@Value("${order-journal.directory:order-journal}") String directory,
+                        @Value("${order-journal.segment-size:67108864}") int segmentSize) {
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSize;
+        try {
+            Files.createDirectories(this.directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "*" + SEGMENT_SUFFIX)) {
+                for (Path file : files) {
+                    String fileName = file.getFileName().toString();
+                    segments.put(Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length())), file);
+                }
+            }
+            if (segments.isEmpty()) {
+                openSegment(1);
+            } else {
+                recover(segments.lastEntry());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't open order journal in " + directory, e);
+        }
+        lastSequence = nextSequence - 1;
+        log.info("Order journal opened in {}, last sequence {}", this.directory.toAbsolutePath(), lastSequence);
+    }
+
+
+    /**
+     * method to append an event, it is visible to readers at once
+     *
+     * @param event -> event to append, its sequence and timestamp are ignored
+     * @return -> appended event with its sequence and timestamp
+     */
+    public synchronized OrderEvent append(OrderEvent event) {
+        byte[] checkoutId = event.getCheckoutId() == null ? null : event.getCheckoutId().getBytes(StandardCharsets.UTF_8);
+        int recordSize = HEADER_SIZE + FIXED_BODY_SIZE + (checkoutId == null ? 0 : checkoutId.length);
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("Order event of " + recordSize + " bytes doesn't fit a journal segment");
+        }
+        if (buffer.remaining() < recordSize) {
+            rollSegment();
+        }
+        OrderEvent appended = event.toBuilder()
+                .sequence(nextSequence)
+                .timestamp(System.currentTimeMillis())
+                .build();
+        int start = buffer.position();
+        buffer.position(start + HEADER_SIZE);
+        buffer.putLong(appended.getSequence())
+                .putLong(appended.getTimestamp())
+                .put((byte) appended.getType().ordinal())
+                .putInt(appended.getOrderId())
+                .putInt(appended.getUserId())
+                .putInt(appended.getProductId())
+                .putInt(appended.getCountOfProduct())
+                .put(appended.getStatus() == null ? -1 : (byte) appended.getStatus().ordinal());
+        if (checkoutId == null) {
+            buffer.putShort((short) -1);
+        } else {
+            buffer.putShort((short) checkoutId.length).put(checkoutId);
+        }
+        buffer.putInt(start + 4, checksum(crc, buffer, start + HEADER_SIZE, start + recordSize));
+        buffer.putInt(start, recordSize);
+        nextSequence++;
+        dirty = true;
+        lastSequence = appended.getSequence();
+        notifyAll();
+        return appended;
+    }
+
+    /**
+     * method to append an event once the current transaction commits, so rolled back changes are never journaled
+     * without a transaction the event is appended at once
+     *
+     * @param event -> event to append
+     */
+    public void appendAfterCommit(OrderEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            append(event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                append(event);
+            }
+        });
+    }
+
+
+    /**
+     * @return -> sequence of the last appended event, 0 if the journal is empty
+     */
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * method to wait until an event is appended
+     *
+     * @param sequence -> sequence of the awaited event
+     * @return -> true if the event is appended, false if the timeout elapsed
+     */
+    public boolean awaitSequence(long sequence, long timeout, TimeUnit unit) throws InterruptedException {
+        if (lastSequence >= sequence) {
+            return true;
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (this) {
+            while (lastSequence < sequence) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * method to read the journal from an offset, a reader is used by one consumer
+     *
+     * @param fromSequence -> sequence of the first event to read, 1 to replay the whole journal
+     * @return -> reader positioned before the event
+     */
+    public Reader reader(long fromSequence) {
+        if (fromSequence < 1) {
+            throw new IllegalArgumentException("Journal sequences start from 1, got " + fromSequence);
+        }
+        return new Reader(fromSequence);
+    }
+
+
+    /**
+     * flushes appended events to disk, batched so appends never wait for the disk
+     */
+    @Scheduled(fixedDelayString = "${order-journal.sync-interval:10}")
+    public void sync() {
+        MappedByteBuffer toSync;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            toSync = buffer;
+        }
+        toSync.force();
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+
+    private void rollSegment() {
+        try {
+            buffer.force();
+            channel.close();
+            openSegment(nextSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't start a new order journal segment", e);
+        }
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", firstSequence, SEGMENT_SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        nextSequence = firstSequence;
+        segments.put(firstSequence, file);
+    }
+
+    /**
+     * continues the last segment after its last complete record, a record torn by a crash is erased
+     */
+    private void recover(Map.Entry<Long, Path> lastSegment) throws IOException {
+        channel = FileChannel.open(lastSegment.getValue(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), segmentSize));
+        nextSequence = lastSegment.getKey();
+        int end = 0;
+        OrderEvent event;
+        while ((event = readRecord(buffer, crc)) != null && event.getSequence() == nextSequence) {
+            nextSequence++;
+            end = buffer.position();
+        }
+        buffer.position(end);
+        if (end + 4 <= buffer.limit() && buffer.getInt(end) != 0) {
+            log.warn("Order journal {} has a torn record after sequence {}, it is erased", lastSegment.getValue(), nextSequence - 1);
+            for (int i = end; i < buffer.limit(); i++) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+    }
+
+    private static int checksum(CRC32 crc, ByteBuffer buffer, int from, int to) {
+        ByteBuffer body = buffer.duplicate();
+        body.limit(to).position(from);
+        crc.reset();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * reads the record at the buffer position and moves the position after it
+     *
+     * @return -> event of the record, null if there is no complete record at the position
+     */
+    private static OrderEvent readRecord(ByteBuffer buffer, CRC32 crc) {
+        int start = buffer.position();
+        if (buffer.limit() - start < HEADER_SIZE + FIXED_BODY_SIZE) {
+            return null;
+        }
+        int recordSize = buffer.getInt(start);
+        if (recordSize < HEADER_SIZE + FIXED_BODY_SIZE || recordSize > buffer.limit() - start
+                || buffer.getInt(start + 4) != checksum(crc, buffer, start + HEADER_SIZE, start + recordSize)) {
+            return null;
+        }
+        buffer.position(start + HEADER_SIZE);
+        OrderEvent.OrderEventBuilder event = OrderEvent.builder()
+                .sequence(buffer.getLong())
+                .timestamp(buffer.getLong())
+                .type(TYPES[buffer.get()])
+                .orderId(buffer.getInt())
+                .userId(buffer.getInt())
+                .productId(buffer.getInt())
+                .countOfProduct(buffer.getInt());
+        byte status = buffer.get();
+        event.status(status < 0 ? null : STATUSES[status]);
+        short checkoutIdLength = buffer.getShort();
+        if (checkoutIdLength >= 0) {
+            byte[] checkoutId = new byte[checkoutIdLength];
+            buffer.get(checkoutId);
+            event.checkoutId(new String(checkoutId, StandardCharsets.UTF_8));
+        }
+        buffer.position(start + recordSize);
+        return event.build();
+    }
+
+
+    /**
+     * Tailing reader of the journal, it maps the segments read only and moves to the next segment by itself
+     */
+    public final class Reader implements Closeable {
+
+        private final CRC32 readerCrc = new CRC32();
+        private long nextSequence;
+        private long segmentFirstSequence;
+        private ByteBuffer segment;
+
+        private Reader(long fromSequence) {
+            this.nextSequence = fromSequence;
+        }
+
+
+        /**
+         * @return -> sequence of the next event this reader returns, consumers store it to resume from there
+         */
+        public synchronized long nextSequence() {
+            return nextSequence;
+        }
+
+        /**
+         * method to read the appended events without waiting
+         *
+         * @param maxEvents -> max count of events to read
+         * @return -> next events in sequence order, empty if none is appended yet
+         */
+        public synchronized List<OrderEvent> poll(int maxEvents) {
+            List<OrderEvent> events = new ArrayList<>();
+            long published = lastSequence;
+            while (events.size() < maxEvents && nextSequence <= published) {
+                OrderEvent event = segment == null ? null : readRecord(segment, readerCrc);
+                if (event == null) {
+                    moveToSegmentOf(nextSequence);
+                } else if (event.getSequence() == nextSequence) {
+                    events.add(event);
+                    nextSequence++;
+                } else if (event.getSequence() > nextSequence) {
+                    throw new IllegalStateException("Order journal misses events from " + nextSequence + " to " + (event.getSequence() - 1));
+                }
+                // events before the replay offset are skipped
+            }
+            return events;
+        }
+
+        /**
+         * method to read the next events, waiting for them if none is appended yet
+         *
+         * @param maxEvents -> max count of events to read
+         * @return -> next events in sequence order, empty if nothing is appended within the timeout
+         */
+        public List<OrderEvent> poll(int maxEvents, long timeout, TimeUnit unit) throws InterruptedException {
+            awaitSequence(nextSequence(), timeout, unit);
+            return poll(maxEvents);
+        }
+
+        @Override
+        public synchronized void close() {
+            segment = null;
+        }
+
+
+        private void moveToSegmentOf(long sequence) {
+            Map.Entry<Long, Path> entry = segments.floorEntry(sequence);
+            if (entry == null || segment != null && entry.getKey() == segmentFirstSequence) {
+                throw new IllegalStateException("Order journal event " + sequence + " can't be read");
+            }
+            try (FileChannel segmentChannel = FileChannel.open(entry.getValue(), StandardOpenOption.READ)) {
+                segment = segmentChannel.map(FileChannel.MapMode.READ_ONLY, 0, segmentChannel.size());
+                segmentFirstSequence = entry.getKey();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Can't read order journal segment " + entry.getValue(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.shoppingcart.mapper;
+
+import com.example.shoppingcart.dto.response.ProductResponseDto;
+import com.example.shoppingcart.entity.Product;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps products to response dtos with plain getters and setters, without reflection
+ */
+@Component
+public class ProductMapper {
+
+    /**
+     * @param product -> product entity
+     * @return -> product response dto, null if product is null
+     */
+    public ProductResponseDto toDto(Product product) {
+        if (product == null) {
+            return null;
+        }
+        return ProductResponseDto.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .description(product.getDescription())
+                .type(product.getType() == null ? null : product.getType().name())
+                .price(product.getPrice())
+                .countInStock(product.getCountInStock())
+                .createdDate(product.getCreatedDate())
+                .updatedDate(product.getUpdatedDate())
+                .build();
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.shoppingcart.mapper;
+
+import com.example.shoppingcart.dto.response.UserResponseDto;
+import com.example.shoppingcart.entity.User;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps users to response dtos with plain getters and setters, without reflection
+ */
+@Component
+public class UserMapper {
+
+    /**
+     * @param user -> user entity
+     * @return -> user response dto without token, null if user is null
+     */
+    public UserResponseDto toDto(User user) {
+        if (user == null) {
+            return null;
+        }
+        return UserResponseDto.builder()
+                .name(user.getName())
+                .surname(user.getSurname())
+                .email(user.getEmail())
+                .type(user.getType())
+                .build();
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.shoppingcart.mapper;
+
+import com.example.shoppingcart.dto.response.UserOrderResponseDto;
+import com.example.shoppingcart.entity.UserOrder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps orders to response dtos with plain getters and setters, without reflection
+ */
+@Component
+public class UserOrderMapper {
+
+    /**
+     * @param order -> order entity, its product is loaded if it is a lazy proxy
+     * @return -> order response dto, null if order is null
+     */
+    public UserOrderResponseDto toDto(UserOrder order) {
+        if (order == null) {
+            return null;
+        }
+        return UserOrderResponseDto.builder()
+                .id(order.getId())
+                .productId(order.getProduct().getId())
+                .productName(order.getProduct().getName())
+                .productPrice(order.getProduct().getPrice())
+                .countOfProduct(order.getCountOfProduct())
+                .checkoutId(order.getCheckoutId())
+                .status(order.getStatus())
+                .createdDate(order.getCreatedDate())
+                .build();
+    }
+}
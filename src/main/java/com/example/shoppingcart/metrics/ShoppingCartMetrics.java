@@ -0,0 +1,135 @@
+package com.example.shoppingcart.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Business metrics of the shop, registered once at startup,
+ * so recording them on the request path doesn't look up or allocate meters
+ * orders (tags kind, outcome), stock.conflicts, stock.leases (tag action), auth.filter (tag principal),
+ * rate.limit.rejected (tag route), access.log.dropped
+ * Endpoint latencies (http.server.requests) and repository timings (spring.data.repository.invocations)
+ * are recorded by spring boot, their percentiles are configured in application.yml
+ */
+@Component
+public class ShoppingCartMetrics {
+
+    /**
+     * how JwtAuthenticationTokenFilter resolved the principal of a request
+     */
+    public enum AuthOutcome {
+        NONE, CACHED, LOADED, INVALID
+    }
+
+    private final Counter ordersPlaced;
+    private final Counter ordersRejected;
+    private final Counter checkoutsPlaced;
+    private final Counter checkoutsRejected;
+    private final Counter stockConflicts;
+    private final Counter stockLeasesClaimed;
+    private final Counter stockLeasesReturned;
+    private final Counter accessLogDropped;
+    private final Timer[] authFilterTimers;
+    private final MeterRegistry meterRegistry;
+
+    public ShoppingCartMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        ordersPlaced = orders(meterRegistry, "single", "placed");
+        ordersRejected = orders(meterRegistry, "single", "rejected");
+        checkoutsPlaced = orders(meterRegistry, "checkout", "placed");
+        checkoutsRejected = orders(meterRegistry, "checkout", "rejected");
+        stockConflicts = Counter.builder("stock.conflicts")
+                .description("Stock reservations rejected because the product has not enough items")
+                .register(meterRegistry);
+        stockLeasesClaimed = stockLeases(meterRegistry, "claimed");
+        stockLeasesReturned = stockLeases(meterRegistry, "returned");
+        accessLogDropped = Counter.builder("access.log.dropped")
+                .description("Access log records dropped because the writer thread fell behind")
+                .register(meterRegistry);
+        AuthOutcome[] outcomes = AuthOutcome.values();
+        authFilterTimers = new Timer[outcomes.length];
+        for (AuthOutcome outcome : outcomes) {
+            authFilterTimers[outcome.ordinal()] = Timer.builder("auth.filter")
+                    .tag("principal", outcome.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+    }
+
+
+    public void orderPlaced() {
+        ordersPlaced.increment();
+    }
+
+    public void orderRejected() {
+        ordersRejected.increment();
+    }
+
+    public void checkoutPlaced() {
+        checkoutsPlaced.increment();
+    }
+
+    public void checkoutRejected() {
+        checkoutsRejected.increment();
+    }
+
+    public void stockConflict() {
+        stockConflicts.increment();
+    }
+
+    public void stockLeaseClaimed() {
+        stockLeasesClaimed.increment();
+    }
+
+    public void stockLeaseReturned() {
+        stockLeasesReturned.increment();
+    }
+
+
+    /**
+     * @return -> counter of access log records dropped, AccessLog increments it without a lookup
+     */
+    public Counter accessLogDropped() {
+        return accessLogDropped;
+    }
+
+    /**
+     * registers the rejection counter of a rate limited route, called once per route at startup
+     *
+     * @param route -> name of the route
+     * @return -> counter of requests rejected by the route limit
+     */
+    public Counter rateLimitRejections(String route) {
+        return Counter.builder("rate.limit.rejected")
+                .description("Requests rejected by rate limits")
+                .tag("route", route)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param outcome   -> how the principal was resolved
+     * @param startTime -> System.nanoTime() when the filter started
+     */
+    public void authFilter(AuthOutcome outcome, long startTime) {
+        authFilterTimers[outcome.ordinal()].record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+
+
+    private static Counter stockLeases(MeterRegistry meterRegistry, String action) {
+        return Counter.builder("stock.leases")
+                .description("Blocks of items of hot products claimed from and returned to the database")
+                .tag("action", action)
+                .register(meterRegistry);
+    }
+
+    private static Counter orders(MeterRegistry meterRegistry, String kind, String outcome) {
+        return Counter.builder("orders")
+                .description("Orders by kind and outcome")
+                .tag("kind", kind)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
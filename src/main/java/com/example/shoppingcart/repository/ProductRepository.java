@@ -2,23 +2,37 @@ package com.example.shoppingcart.repository;
 
 import com.example.shoppingcart.entity.Product;
 import com.example.shoppingcart.entity.ProductType;
-import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product,Integer> {
-
-
-    List<Product> findProductsByType(ProductType type);
-    List<Product> findProductsByType(ProductType type, Sort sort);
-
-    @Query(value = "SELECT * FROM product p WHERE p.name LIKE %?1% OR p.description LIKE %?1%",
-    nativeQuery = true)
-    List<Product> findAll(String keyword);
+public interface ProductRepository extends JpaRepository<Product,Integer>, ProductRepositoryCustom {
+
+
+    List<Product> findByIdGreaterThanOrderByIdAsc(int afterId, Pageable pageable);
+    List<Product> findProductsByTypeAndIdGreaterThanOrderByIdAsc(ProductType type, int afterId, Pageable pageable);
+
+    /**
+     * conditional decrement of the stock, done in a single statement
+     *
+     * @return -> 1 if the stock has been decremented, 0 if the product doesn't exist or has not enough items
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.countInStock = p.countInStock - ?2 WHERE p.id = ?1 AND p.countInStock >= ?2")
+    int decrementStock(int productId, int count);
+
+    /**
+     * increment of the stock, done in a single statement, to give back items leased by StockLeaseService
+     *
+     * @return -> 1 if the stock has been incremented, 0 if the product doesn't exist anymore
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.countInStock = p.countInStock + ?2 WHERE p.id = ?1")
+    int incrementStock(int productId, int count);
 
 }
-
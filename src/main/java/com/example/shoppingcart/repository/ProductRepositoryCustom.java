@@ -0,0 +1,23 @@
+package com.example.shoppingcart.repository;
+
+import com.example.shoppingcart.entity.Product;
+import com.example.shoppingcart.entity.ProductType;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+
+    /**
+     * keyset page of products of a type, ordered by the sorted property and then by id
+     *
+     * @param type       -> product type
+     * @param order      -> sorted property and direction
+     * @param afterValue -> value of the sorted property of the last item of the previous page, null for the first page
+     * @param afterId    -> id of the last item of the previous page, ignored for the first page
+     * @param limit      -> max count of products
+     * @return -> products following the previous page
+     */
+    List<Product> findProductsByType(ProductType type, Sort.Order order, Object afterValue, int afterId, int limit);
+
+}
@@ -0,0 +1,42 @@
+package com.example.shoppingcart.repository;
+
+import com.example.shoppingcart.entity.Product;
+import com.example.shoppingcart.entity.ProductType;
+import org.springframework.data.domain.Sort;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.*;
+import java.util.List;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public List<Product> findProductsByType(ProductType type, Sort.Order order, Object afterValue, int afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Product> query = cb.createQuery(Product.class);
+        Root<Product> product = query.from(Product.class);
+        Path<Comparable> key = product.get(order.getProperty());
+        Path<Integer> id = product.get("id");
+
+        Predicate predicate = cb.equal(product.get("type"), type);
+        if (afterValue != null) {
+            Comparable value = (Comparable) afterValue;
+            Predicate afterKey = order.isAscending() ? cb.greaterThan(key, value) : cb.lessThan(key, value);
+            Predicate afterIdWithSameKey = cb.and(cb.equal(key, value),
+                    order.isAscending() ? cb.greaterThan(id, afterId) : cb.lessThan(id, afterId));
+            predicate = cb.and(predicate, cb.or(afterKey, afterIdWithSameKey));
+        }
+        query.select(product)
+                .where(predicate)
+                .orderBy(order.isAscending() ? cb.asc(key) : cb.desc(key),
+                        order.isAscending() ? cb.asc(id) : cb.desc(id));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.shoppingcart.repository;
+
+import com.example.shoppingcart.dto.response.ProductResponseDto;
+import com.example.shoppingcart.entity.ProductSortKey;
+import com.example.shoppingcart.entity.ProductType;
+import io.r2dbc.spi.Row;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Non-blocking product reads for the reactive catalog, rows are mapped to dtos as they arrive
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReactiveProductRepository {
+
+    private static final String SELECT_PRODUCTS = "SELECT id, name, description, type, price, count_in_stock, " +
+            "created_date, updated_date FROM product";
+
+    private final DatabaseClient reactiveCatalogDatabaseClient;
+
+
+    /**
+     * @param limit -> max count of products, 0 for all
+     * @return -> products ordered by id
+     */
+    public Flux<ProductResponseDto> findAll(int limit) {
+        return reactiveCatalogDatabaseClient.sql(SELECT_PRODUCTS + " ORDER BY id" + limit(limit))
+                .map(ReactiveProductRepository::toDto)
+                .all();
+    }
+
+    /**
+     * @param limit -> max count of products, 0 for all
+     * @return -> products of the type ordered by id
+     */
+    public Flux<ProductResponseDto> findByType(ProductType type, int limit) {
+        return reactiveCatalogDatabaseClient.sql(SELECT_PRODUCTS + " WHERE type = :type ORDER BY id" + limit(limit))
+                .bind("type", type.name())
+                .map(ReactiveProductRepository::toDto)
+                .all();
+    }
+
+    /**
+     * @param limit -> max count of products, 0 for all
+     * @return -> products of the type ordered by the sort key, then by id
+     */
+    public Flux<ProductResponseDto> findByTypeSorted(ProductType type, ProductSortKey sortKey, boolean ascending, int limit) {
+        String direction = ascending ? " ASC" : " DESC";
+        return reactiveCatalogDatabaseClient.sql(SELECT_PRODUCTS + " WHERE type = :type ORDER BY " + column(sortKey) + direction
+                        + ", id" + direction + limit(limit))
+                .bind("type", type.name())
+                .map(ReactiveProductRepository::toDto)
+                .all();
+    }
+
+    /**
+     * @return -> existing products with the ids, in no particular order
+     */
+    public Flux<ProductResponseDto> findAllById(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return reactiveCatalogDatabaseClient.sql(SELECT_PRODUCTS + " WHERE id IN (:ids)")
+                .bind("ids", ids)
+                .map(ReactiveProductRepository::toDto)
+                .all();
+    }
+
+
+    private static String limit(int limit) {
+        return limit > 0 ? " LIMIT " + limit : "";
+    }
+
+    private static String column(ProductSortKey sortKey) {
+        switch (sortKey) {
+            case NAME:
+                return "name";
+            case PRICE:
+                return "price";
+            case CREATED_DATE:
+                return "created_date";
+            default:
+                throw new IllegalArgumentException("Unknown sort key " + sortKey);
+        }
+    }
+
+    private static ProductResponseDto toDto(Row row) {
+        LocalDateTime createdDate = row.get("created_date", LocalDateTime.class);
+        Double price = row.get("price", Double.class);
+        Integer countInStock = row.get("count_in_stock", Integer.class);
+        return ProductResponseDto.builder()
+                .id(row.get("id", Integer.class))
+                .name(row.get("name", String.class))
+                .description(row.get("description", String.class))
+                .type(row.get("type", String.class))
+                .price(price == null ? 0 : price)
+                .countInStock(countInStock == null ? 0 : countInStock)
+                .createdDate(createdDate == null ? null : Timestamp.valueOf(createdDate))
+                .updatedDate(row.get("updated_date", LocalDate.class))
+                .build();
+    }
+}
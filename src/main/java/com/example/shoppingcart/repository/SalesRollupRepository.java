@@ -0,0 +1,10 @@
+package com.example.shoppingcart.repository;
+
+import com.example.shoppingcart.entity.SalesRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SalesRollupRepository extends JpaRepository<SalesRollup, String> {
+
+}
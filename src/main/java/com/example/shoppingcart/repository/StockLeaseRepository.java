@@ -0,0 +1,46 @@
+package com.example.shoppingcart.repository;
+
+import com.example.shoppingcart.entity.StockLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockLeaseRepository extends JpaRepository<StockLease, Integer> {
+
+    List<StockLease> findByOwner(String owner);
+    List<StockLease> findByExpiresAtBefore(LocalDateTime time);
+
+    /**
+     * @return -> the lease, locked until the end of the transaction, so orders using it can't change it meanwhile
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM StockLease l WHERE l.id = ?1")
+    Optional<StockLease> findByIdForUpdate(int leaseId);
+
+    /**
+     * conditional decrement of the units of a lease, done in a single statement
+     *
+     * @return -> 1 if the units have been decremented, 0 if the lease has been given back or has not enough units
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE StockLease l SET l.units = l.units - ?2 WHERE l.id = ?1 AND l.units >= ?2")
+    int decrementUnits(int leaseId, int count);
+
+    /**
+     * deletes the leases of a product without giving their units back, locking their rows like orders using them
+     *
+     * @return -> count of deleted leases
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM StockLease l WHERE l.productId = ?1")
+    int deleteByProductId(int productId);
+
+}
@@ -1,14 +1,31 @@
 package com.example.shoppingcart.repository;
 
+import com.example.shoppingcart.dto.response.UserOrderResponseDto;
 import com.example.shoppingcart.entity.UserOrder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface UserOrderRepository extends JpaRepository<UserOrder,Integer> {
 
-    List<UserOrder> findOrdersByUser_Id(int userId);
+    /**
+     * page of customer orders as dtos, read with a single statement joining only the product
+     */
+    @Query("SELECT new com.example.shoppingcart.dto.response.UserOrderResponseDto(" +
+            "o.id, p.id, p.name, p.price, o.countOfProduct, o.checkoutId, o.status, o.createdDate) " +
+            "FROM UserOrder o JOIN o.product p WHERE o.user.id = ?1 AND o.id > ?2 ORDER BY o.id")
+    List<UserOrderResponseDto> findOrderDtosByUserId(int userId, int afterId, Pageable pageable);
+
+    List<UserOrder> findOrdersByCheckoutId(String checkoutId);
+
+    @Override
+    @EntityGraph(attributePaths = "product")
+    Optional<UserOrder> findById(Integer id);
 
 }
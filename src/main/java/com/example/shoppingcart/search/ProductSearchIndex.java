@@ -0,0 +1,211 @@
+package com.example.shoppingcart.search;
+
+import com.example.shoppingcart.entity.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over the tokenized product name and description
+ * A query term matches every indexed token it is a prefix of ("tel" finds "telephone"),
+ * all terms of a query must match (AND), results are ordered by relevance
+ * The index is built at startup and kept up to date by ProductService writes, so it only
+ * sees writes of the node it runs on
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // token -> (product id -> weight of the token in the product)
+    private final NavigableMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+    // product id -> indexed tokens, needed to remove the old postings of a product
+    private final Map<Integer, Set<String>> productTokens = new HashMap<>();
+
+
+    /**
+     * method to replace the whole index content
+     *
+     * @param products -> all existing products
+     */
+    public void rebuild(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            productTokens.clear();
+            for (Product product : products) {
+                add(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * method to add a new product or re-index an updated one
+     *
+     * @param product -> saved product
+     */
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            removePostings(product.getId());
+            add(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * method to remove a product from the index
+     *
+     * @param productId -> removed product id
+     */
+    public void remove(int productId) {
+        lock.writeLock().lock();
+        try {
+            removePostings(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * method to search products by keywords
+     *
+     * @param query -> keywords written by customer
+     * @return -> ids of products matching all keywords, most relevant first
+     */
+    public List<Integer> search(String query) {
+        return search(query, Integer.MAX_VALUE);
+    }
+
+
+    /**
+     * method to search the most relevant products by keywords
+     * only the top products are kept while ranking, a short prefix matching most products sorts no more than limit of them
+     *
+     * @param query -> keywords written by customer
+     * @param limit -> max count of products
+     * @return -> ids of the limit most relevant products matching all keywords, most relevant first
+     */
+    public List<Integer> search(String query, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Integer, Integer> scores = null;
+        lock.readLock().lock();
+        try {
+            for (String term : new LinkedHashSet<>(terms)) {
+                Map<Integer, Integer> termScores = termScores(term);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+                        entry.setValue(entry.getValue() + termScores.get(entry.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Comparator<Map.Entry<Integer, Integer>> relevance = Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+        // least relevant of the top products first, so it's the one replaced by a more relevant product
+        PriorityQueue<Map.Entry<Integer, Integer>> top = new PriorityQueue<>(relevance.reversed());
+        for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+            if (top.size() < limit) {
+                top.add(entry);
+            } else if (relevance.compare(entry, top.peek()) < 0) {
+                top.poll();
+                top.add(entry);
+            }
+        }
+        List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(top);
+        ranked.sort(relevance);
+        List<Integer> productIds = new ArrayList<>(ranked.size());
+        for (Map.Entry<Integer, Integer> entry : ranked) {
+            productIds.add(entry.getKey());
+        }
+        return productIds;
+    }
+
+
+    /**
+     * splits text into lower case tokens of letters and digits
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean tokenChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // exact token matches count twice as much as prefix matches
+    private Map<Integer, Integer> termScores(String term) {
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (Map.Entry<String, Map<Integer, Integer>> posting : postings.tailMap(term, true).entrySet()) {
+            String token = posting.getKey();
+            if (!token.startsWith(term)) {
+                break;
+            }
+            int factor = token.length() == term.length() ? 2 : 1;
+            for (Map.Entry<Integer, Integer> entry : posting.getValue().entrySet()) {
+                scores.merge(entry.getKey(), entry.getValue() * factor, Integer::sum);
+            }
+        }
+        return scores;
+    }
+
+    private void add(Product product) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String token : tokenize(product.getName())) {
+            weights.merge(token, NAME_WEIGHT, Integer::sum);
+        }
+        for (String token : tokenize(product.getDescription())) {
+            weights.merge(token, DESCRIPTION_WEIGHT, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), token -> new HashMap<>())
+                    .put(product.getId(), entry.getValue());
+        }
+        productTokens.put(product.getId(), weights.keySet());
+    }
+
+    private void removePostings(int productId) {
+        Set<String> tokens = productTokens.remove(productId);
+        if (tokens == null) {
+            return;
+        }
+        for (String token : tokens) {
+            Map<Integer, Integer> products = postings.get(token);
+            products.remove(productId);
+            if (products.isEmpty()) {
+                postings.remove(token);
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.shoppingcart.search;
+
+import com.example.shoppingcart.entity.Product;
+import com.example.shoppingcart.entity.ProductSortKey;
+import com.example.shoppingcart.entity.ProductType;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process sorted arrays of the products of every type, one per sort key, ordered by the sorted value, then by id
+ * A sorted page is a binary search for the cursor and a slice of the array, in both directions
+ * Arrays are copied on write, so reads take no lock, writes (admin changes, bulk import) are rare
+ * Names are compared case-insensitively, like the default mysql collation, missing values come first
+ * The index is built at startup and kept up to date by ProductService writes and stock reservations of this node,
+ * writes of other nodes are picked up by the periodic rebuild, see product-index.rebuild-interval
+ */
+@Component
+public class ProductSortIndex {
+
+    private static final ProductSortKey[] SORT_KEYS = ProductSortKey.values();
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    // type -> entries sorted by each sort key, indexed by the sort key ordinal
+    private volatile Map<ProductType, Entry[][]> sorted = new ConcurrentHashMap<>();
+    private volatile Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean built;
+
+
+    /**
+     * method to replace the whole index
+     *
+     * @param products -> all existing products
+     */
+    public synchronized void rebuild(Collection<Product> products) {
+        Map<ProductType, List<Entry>> byType = new EnumMap<>(ProductType.class);
+        Map<Integer, Entry> rebuiltEntries = new ConcurrentHashMap<>();
+        for (Product product : products) {
+            Entry entry = new Entry(product);
+            rebuiltEntries.put(product.getId(), entry);
+            byType.computeIfAbsent(product.getType(), type -> new ArrayList<>()).add(entry);
+        }
+        Map<ProductType, Entry[][]> rebuiltSorted = new ConcurrentHashMap<>();
+        for (Map.Entry<ProductType, List<Entry>> typeEntries : byType.entrySet()) {
+            Entry[][] arrays = new Entry[SORT_KEYS.length][];
+            for (ProductSortKey sortKey : SORT_KEYS) {
+                Entry[] array = typeEntries.getValue().toArray(NO_ENTRIES);
+                Arrays.sort(array, (a, b) -> compare(a, sortKey, b.sortValues[sortKey.ordinal()], b.product.getId()));
+                arrays[sortKey.ordinal()] = array;
+            }
+            rebuiltSorted.put(typeEntries.getKey(), arrays);
+        }
+        entries = rebuiltEntries;
+        sorted = rebuiltSorted;
+        built = true;
+    }
+
+    /**
+     * method to add or replace a product
+     *
+     * @param product -> saved product
+     */
+    public synchronized void index(Product product) {
+        remove(product.getId());
+        Entry entry = new Entry(product);
+        entries.put(product.getId(), entry);
+        Entry[][] arrays = sorted.get(product.getType());
+        Entry[][] updated = new Entry[SORT_KEYS.length][];
+        for (ProductSortKey sortKey : SORT_KEYS) {
+            Entry[] array = arrays == null ? NO_ENTRIES : arrays[sortKey.ordinal()];
+            int position = -search(array, sortKey, entry.sortValues[sortKey.ordinal()], product.getId()) - 1;
+            Entry[] copy = new Entry[array.length + 1];
+            System.arraycopy(array, 0, copy, 0, position);
+            copy[position] = entry;
+            System.arraycopy(array, position, copy, position + 1, array.length - position);
+            updated[sortKey.ordinal()] = copy;
+        }
+        sorted.put(product.getType(), updated);
+    }
+
+    /**
+     * method to remove a product, unknown ids are ignored
+     *
+     * @param productId -> id of the removed product
+     */
+    public synchronized void remove(int productId) {
+        Entry entry = entries.remove(productId);
+        if (entry == null) {
+            return;
+        }
+        Entry[][] arrays = sorted.get(entry.product.getType());
+        Entry[][] updated = new Entry[SORT_KEYS.length][];
+        for (ProductSortKey sortKey : SORT_KEYS) {
+            Entry[] array = arrays[sortKey.ordinal()];
+            int position = search(array, sortKey, entry.sortValues[sortKey.ordinal()], productId);
+            Entry[] copy = new Entry[array.length - 1];
+            System.arraycopy(array, 0, copy, 0, position);
+            System.arraycopy(array, position + 1, copy, position, array.length - position - 1);
+            updated[sortKey.ordinal()] = copy;
+        }
+        sorted.put(entry.product.getType(), updated);
+    }
+
+    /**
+     * method to change the count in stock of an indexed product, stock is not sorted by, so no array is copied
+     *
+     * @param productId -> product id
+     * @param delta     -> items added to stock, negative for reserved items
+     */
+    public void adjustStock(int productId, int delta) {
+        Entry entry = entries.get(productId);
+        if (entry != null) {
+            synchronized (entry) {
+                entry.countInStock += delta;
+            }
+        }
+    }
+
+
+    /**
+     * @return -> false until the index is built, callers have to query the database then
+     */
+    public boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * method to find a page of products of a type, in the order of the sort key
+     *
+     * @param afterValue -> sorted value of the last product of the previous page, ignored for the first page
+     * @param afterId    -> id of the last product of the previous page, 0 for the first page
+     * @param limit      -> max count of products
+     * @return -> copies of the products, with their current count in stock
+     */
+    public List<Product> page(ProductType type, ProductSortKey sortKey, boolean ascending,
+                              Object afterValue, int afterId, int limit) {
+        Entry[][] arrays = sorted.get(type);
+        if (arrays == null) {
+            return Collections.emptyList();
+        }
+        Entry[] array = arrays[sortKey.ordinal()];
+        int position;
+        if (afterId == 0) {
+            position = ascending ? 0 : array.length - 1;
+        } else {
+            int found = search(array, sortKey, normalize(afterValue), afterId);
+            // not found: -(insertion point) - 1, the cursor product may have been changed or removed since
+            int insertionPoint = found >= 0 ? found : -found - 1;
+            position = ascending ? (found >= 0 ? found + 1 : insertionPoint) : insertionPoint - 1;
+        }
+        List<Product> page = new ArrayList<>(Math.min(limit, array.length));
+        for (int i = position; i >= 0 && i < array.length && page.size() < limit; i += ascending ? 1 : -1) {
+            page.add(array[i].toProduct());
+        }
+        return page;
+    }
+
+
+    /**
+     * binary search by sorted value, then by id
+     *
+     * @return -> position of the product, or -(insertion point) - 1 if it isn't in the array
+     */
+    private static int search(Entry[] array, ProductSortKey sortKey, Comparable<Object> value, int id) {
+        int low = 0;
+        int high = array.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(array[middle], sortKey, value, id);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static int compare(Entry entry, ProductSortKey sortKey, Comparable<Object> value, int id) {
+        Comparable<Object> entryValue = entry.sortValues[sortKey.ordinal()];
+        int comparison;
+        if (entryValue == null || value == null) {
+            comparison = entryValue == null ? (value == null ? 0 : -1) : 1;
+        } else {
+            comparison = entryValue.compareTo(value);
+        }
+        return comparison != 0 ? comparison : Integer.compare(entry.product.getId(), id);
+    }
+
+    /**
+     * dates are compared by their time, so a Timestamp loaded from the database equals a Date decoded from a cursor
+     */
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> normalize(Object value) {
+        if (value instanceof Date) {
+            value = ((Date) value).getTime();
+        } else if (value instanceof String) {
+            value = ((String) value).toLowerCase(Locale.ROOT);
+        }
+        return (Comparable<Object>) value;
+    }
+
+
+    private static final class Entry {
+
+        private final Product product;
+        private final Comparable<Object>[] sortValues;
+        private int countInStock;
+
+        @SuppressWarnings("unchecked")
+        private Entry(Product product) {
+            this.product = copy(product);
+            this.countInStock = product.getCountInStock();
+            this.sortValues = new Comparable[SORT_KEYS.length];
+            for (ProductSortKey sortKey : SORT_KEYS) {
+                sortValues[sortKey.ordinal()] = normalize(sortKey.valueOf(product));
+            }
+        }
+
+        private synchronized Product toProduct() {
+            Product copy = copy(product);
+            copy.setCountInStock(countInStock);
+            return copy;
+        }
+
+        private static Product copy(Product product) {
+            return Product.builder()
+                    .id(product.getId())
+                    .name(product.getName())
+                    .description(product.getDescription())
+                    .type(product.getType())
+                    .price(product.getPrice())
+                    .countInStock(product.getCountInStock())
+                    .createdDate(product.getCreatedDate())
+                    .updatedDate(product.getUpdatedDate())
+                    .build();
+        }
+    }
+}
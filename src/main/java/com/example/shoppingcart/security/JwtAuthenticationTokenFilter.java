@@ -1,5 +1,7 @@
 package com.example.shoppingcart.security;
 
+import com.example.shoppingcart.metrics.ShoppingCartMetrics;
+import com.example.shoppingcart.metrics.ShoppingCartMetrics.AuthOutcome;
 import com.example.shoppingcart.util.JwtTokenUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -20,32 +22,61 @@ public class JwtAuthenticationTokenFilter extends OncePerRequestFilter {
     private JwtTokenUtil tokenUtil;
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
+    @Autowired
+    private PrincipalCache principalCache;
+    @Autowired
+    private ShoppingCartMetrics metrics;
 
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
+        long startTime = System.nanoTime();
+        AuthOutcome outcome = AuthOutcome.NONE;
         String requestHeader = request.getHeader("Authorization");
-        String username = null;
         String authToken = null;
         if(requestHeader != null && requestHeader.startsWith("Bearer ")){
             authToken = requestHeader.substring(7);
-            try{
-                username = tokenUtil.getUsernameFromToken(authToken);
-            }catch (Exception e){
-                logger.error(e);
-            }
         }
-        if(username != null && SecurityContextHolder.getContext().getAuthentication() == null){
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-            if(tokenUtil.validateToken(authToken,userDetails.getUsername())){
+        if(authToken != null && SecurityContextHolder.getContext().getAuthentication() == null){
+            UserDetails userDetails = principalCache.get(authToken);
+            outcome = AuthOutcome.CACHED;
+            if(userDetails == null){
+                userDetails = loadUserDetails(authToken);
+                outcome = userDetails == null ? AuthOutcome.INVALID : AuthOutcome.LOADED;
+            }
+            if(userDetails != null){
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(userDetails,null,userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authentication);
             }
         }
+        metrics.authFilter(outcome, startTime);
         filterChain.doFilter(request,response);
 
     }
+
+    /**
+     * parses and validates the token, loads its user and caches it as principal of the token
+     *
+     * @return -> principal, null if the token is not valid
+     */
+    private UserDetails loadUserDetails(String authToken) {
+        String username = null;
+        try{
+            username = tokenUtil.getUsernameFromToken(authToken);
+        }catch (Exception e){
+            logger.error(e);
+        }
+        if(username == null){
+            return null;
+        }
+        UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+        if(!tokenUtil.validateToken(authToken,userDetails.getUsername())){
+            return null;
+        }
+        principalCache.put(authToken, userDetails, tokenUtil.getExpirationDateFromToken(authToken));
+        return userDetails;
+    }
 }
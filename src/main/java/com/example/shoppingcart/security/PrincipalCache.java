@@ -0,0 +1,97 @@
+package com.example.shoppingcart.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of authenticated principals by token, so JwtAuthenticationTokenFilter doesn't parse the token
+ * and load the user from the database on every request
+ * An entry lives until the token expires, but no longer than jwt.principal-cache.max-ttl seconds,
+ * which bounds how long a removed user stays authenticated
+ * UserService evicts the principals of a user when its type or password changes
+ * Hits are published as the cache.gets metric of the cache "principals"
+ */
+@Component
+public class PrincipalCache {
+
+    private final Cache<String, CachedPrincipal> principals;
+
+    public PrincipalCache(@Value("${jwt.principal-cache.max-size:10000}") long maxSize,
+                          @Value("${jwt.principal-cache.max-ttl:600}") long maxTtlSeconds,
+                          MeterRegistry meterRegistry) {
+        long maxTtlNanos = TimeUnit.SECONDS.toNanos(maxTtlSeconds);
+        principals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, CachedPrincipal>() {
+                    @Override
+                    public long expireAfterCreate(String token, CachedPrincipal principal, long currentTime) {
+                        long untilTokenExpires = TimeUnit.MILLISECONDS.toNanos(principal.expiresAt - System.currentTimeMillis());
+                        return Math.max(0, Math.min(untilTokenExpires, maxTtlNanos));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String token, CachedPrincipal principal, long currentTime, long currentDuration) {
+                        return expireAfterCreate(token, principal, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, CachedPrincipal principal, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principals, "principals");
+    }
+
+
+    /**
+     * @param token -> jw token of the request
+     * @return -> principal authenticated by the token, null if the token is not cached
+     */
+    public UserDetails get(String token) {
+        CachedPrincipal principal = principals.getIfPresent(token);
+        return principal == null ? null : principal.userDetails;
+    }
+
+
+    /**
+     * @param token       -> validated jw token
+     * @param userDetails -> principal authenticated by the token
+     * @param expiration  -> token expiration date
+     */
+    public void put(String token, UserDetails userDetails, Date expiration) {
+        principals.put(token, new CachedPrincipal(userDetails, expiration.getTime()));
+    }
+
+
+    /**
+     * method to remove all cached principals of a user, must be called when user type or password changes
+     *
+     * @param email -> user email
+     */
+    public void evictUser(String email) {
+        principals.asMap().values().removeIf(principal -> principal.userDetails.getUsername().equals(email));
+    }
+
+
+    private static final class CachedPrincipal {
+
+        private final UserDetails userDetails;
+        private final long expiresAt;
+
+        private CachedPrincipal(UserDetails userDetails, long expiresAt) {
+            this.userDetails = userDetails;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.shoppingcart.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects requests over the rate limit of their route with 429 and Retry-After
+ * runs right after JwtAuthenticationTokenFilter, so authenticated users are limited by email
+ * and anonymous clients by address (behind a proxy set server.forward-headers-strategy, so it is the client address)
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        RateLimiter.RouteLimit route = rateLimiter.match(request.getMethod(), urlPathHelper.getPathWithinApplication(request));
+        if (route != null) {
+            long waitNanos = rateLimiter.tryAcquire(route, client(request));
+            if (waitNanos > 0) {
+                long retryAfterSeconds = (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static String client(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated() && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return authentication.getName();
+        }
+        return request.getRemoteAddr();
+    }
+}
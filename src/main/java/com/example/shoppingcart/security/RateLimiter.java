@@ -0,0 +1,171 @@
+package com.example.shoppingcart.security;
+
+import com.example.shoppingcart.config.RateLimitProperties;
+import com.example.shoppingcart.metrics.ShoppingCartMetrics;
+import io.micrometer.core.instrument.Counter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets per route and client
+ * A bucket is one AtomicLong, the time its next token is due (generic cell rate algorithm),
+ * taking a token is one compare-and-set, so requests never lock and buckets never need a refill task
+ * Buckets are kept in stripes of concurrent maps, a full bucket is the same as no bucket,
+ * so buckets idle for idle-timeout after they are full again are dropped, one stripe at a time
+ */
+@Component
+public class RateLimiter {
+
+    private static final int STRIPES = 16;
+
+    private final List<RouteLimit> routes = new ArrayList<>();
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    @SuppressWarnings("unchecked")
+    private final ConcurrentHashMap<BucketKey, AtomicLong>[] stripes = new ConcurrentHashMap[STRIPES];
+    private final long idleTimeoutNanos;
+    private final LongSupplier clock;
+
+    @Autowired
+    public RateLimiter(RateLimitProperties properties, ShoppingCartMetrics metrics) {
+        this(properties, metrics, System::nanoTime);
+    }
+
+    RateLimiter(RateLimitProperties properties, ShoppingCartMetrics metrics, LongSupplier clock) {
+        for (RateLimitProperties.Route route : properties.getRoutes()) {
+            if (route.getCapacity() < 1 || route.getPerSecond() <= 0) {
+                throw new IllegalArgumentException("Rate limit route " + route.getName() + " needs capacity >= 1 and perSecond > 0");
+            }
+            routes.add(new RouteLimit(route, metrics.rateLimitRejections(route.getName())));
+        }
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(properties.getIdleTimeout());
+        this.clock = clock;
+    }
+
+
+    /**
+     * @param method -> http method of the request
+     * @param path   -> path of the request within the application
+     * @return -> limit of the first matching route, null if the request is not limited
+     */
+    public RouteLimit match(String method, String path) {
+        for (RouteLimit route : routes) {
+            if ((route.method == null || route.method.equalsIgnoreCase(method)) && pathMatcher.match(route.path, path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * method to take a token of the client bucket of the route
+     *
+     * @param route  -> matched route
+     * @param client -> email of the authenticated user or address of an anonymous client
+     * @return -> 0 if a token has been taken, else nanoseconds until the next token is due
+     */
+    public long tryAcquire(RouteLimit route, String client) {
+        BucketKey key = new BucketKey(route, client);
+        long now = clock.getAsLong();
+        AtomicLong bucket = stripes[Math.floorMod(key.hashCode(), STRIPES)]
+                .computeIfAbsent(key, k -> new AtomicLong(now));
+        while (true) {
+            long nextTokenDue = bucket.get();
+            long afterTaking = Math.max(nextTokenDue, now) + route.nanosPerToken;
+            long wait = afterTaking - now - route.burstNanos;
+            if (wait > 0) {
+                route.rejections.increment();
+                return wait;
+            }
+            if (bucket.compareAndSet(nextTokenDue, afterTaking)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return -> count of clients with a bucket, over all routes
+     */
+    public int bucketCount() {
+        int count = 0;
+        for (ConcurrentHashMap<BucketKey, AtomicLong> stripe : stripes) {
+            count += stripe.size();
+        }
+        return count;
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval:60000}")
+    public void evictIdleBuckets() {
+        long idleSince = clock.getAsLong() - idleTimeoutNanos;
+        for (ConcurrentHashMap<BucketKey, AtomicLong> stripe : stripes) {
+            stripe.values().removeIf(bucket -> bucket.get() - idleSince < 0);
+        }
+    }
+
+
+    /**
+     * limit of one route, with its rate as nanoseconds
+     */
+    public static final class RouteLimit {
+
+        private final String name;
+        private final String method;
+        private final String path;
+        private final long nanosPerToken;
+        // how far ahead of now the bucket may get, a full bucket has capacity tokens
+        private final long burstNanos;
+        private final Counter rejections;
+
+        private RouteLimit(RateLimitProperties.Route route, Counter rejections) {
+            this.name = route.getName();
+            this.method = route.getMethod();
+            this.path = route.getPath();
+            this.nanosPerToken = (long) (TimeUnit.SECONDS.toNanos(1) / route.getPerSecond());
+            this.burstNanos = nanosPerToken * route.getCapacity();
+            this.rejections = rejections;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final class BucketKey {
+
+        private final RouteLimit route;
+        private final String client;
+
+        private BucketKey(RouteLimit route, String client) {
+            this.route = route;
+            this.client = client;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BucketKey)) {
+                return false;
+            }
+            BucketKey other = (BucketKey) o;
+            return route == other.route && client.equals(other.client);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(route) + client.hashCode();
+        }
+    }
+}
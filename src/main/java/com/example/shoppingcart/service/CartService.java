@@ -0,0 +1,252 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.dto.request.CheckoutItemDto;
+import com.example.shoppingcart.entity.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Cart Service
+ * Carts are kept in memory, one per customer, so adding and removing items costs no database write
+ * Changed carts are marked dirty and written to the database by flush(), one transaction per cart,
+ * every cart.flush-interval ms and on shutdown
+ * Clean carts not touched for cart.idle-timeout ms are dropped from memory and loaded again on next use
+ */
+@Service
+@Slf4j
+public class CartService {
+
+    private static final String SELECT_ITEMS = "SELECT product_id, count_of_product FROM cart_items WHERE user_id = ? ORDER BY id";
+    private static final String DELETE_ITEMS = "DELETE FROM cart_items WHERE user_id = ?";
+    private static final String INSERT_ITEM = "INSERT INTO cart_items (user_id, product_id, count_of_product) VALUES (?, ?, ?)";
+    private static final String SELECT_PRODUCTS = "SELECT id FROM product WHERE id IN (";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long idleTimeoutMillis;
+    private final Map<Integer, Cart> carts = new ConcurrentHashMap<>();
+    private final Set<Integer> dirtyUserIds = ConcurrentHashMap.newKeySet();
+
+    public CartService(JdbcTemplate jdbcTemplate,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${cart.idle-timeout:1800000}") long idleTimeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+
+    /**
+     * @param user -> current customer
+     * @return -> products and their counts in the customer cart, in the order they were added
+     */
+    public List<CheckoutItemDto> findItems(User user) {
+        Cart cart = cart(user.getId());
+        synchronized (cart) {
+            cart.lastAccess = System.currentTimeMillis();
+            return cart.snapshot();
+        }
+    }
+
+
+    /**
+     * method to add items of a product to the customer cart
+     *
+     * @param user      -> current customer
+     * @param productId -> product id, must exist
+     * @param count     -> count of items to add
+     * @return -> cart items after the change
+     */
+    public List<CheckoutItemDto> addItem(User user, int productId, int count) {
+        return update(user, items -> items.merge(productId, count, Integer::sum));
+    }
+
+
+    /**
+     * method to remove a product from the customer cart
+     *
+     * @param user      -> current customer
+     * @param productId -> product id
+     * @return -> cart items after the change
+     */
+    public List<CheckoutItemDto> removeItem(User user, int productId) {
+        return update(user, items -> items.remove(productId));
+    }
+
+
+    /**
+     * method to remove ordered items from the customer cart, items added while they were ordered stay in the cart
+     *
+     * @param user  -> current customer
+     * @param items -> ordered products and their counts
+     * @return -> cart items after the change
+     */
+    public List<CheckoutItemDto> removeItems(User user, List<CheckoutItemDto> items) {
+        return update(user, cartItems -> {
+            for (CheckoutItemDto item : items) {
+                cartItems.computeIfPresent(item.getProductId(), (productId, count) ->
+                        count > item.getCount() ? count - item.getCount() : null);
+            }
+        });
+    }
+
+
+    /**
+     * @param user -> current customer
+     */
+    public void clear(User user) {
+        update(user, Map::clear);
+    }
+
+
+    /**
+     * method to write all changed carts to the database, each cart as a whole in its own transaction, deleting its old rows
+     * items of products removed from the catalog are dropped from their cart, so they don't keep the cart from being written
+     * a cart which could not be written stays dirty and is written by the next flush
+     */
+    @Scheduled(fixedDelayString = "${cart.flush-interval:5000}")
+    public synchronized void flush() {
+        int failed = 0;
+        RuntimeException lastError = null;
+        for (Integer userId : new ArrayList<>(dirtyUserIds)) {
+            dirtyUserIds.remove(userId);
+            Cart cart = carts.get(userId);
+            if (cart == null) {
+                continue;
+            }
+            try {
+                try {
+                    write(userId, cart);
+                } catch (DataIntegrityViolationException e) {
+                    if (!dropRemovedProducts(userId, cart)) {
+                        throw e;
+                    }
+                    write(userId, cart);
+                }
+            } catch (RuntimeException e) {
+                dirtyUserIds.add(userId);
+                failed++;
+                lastError = e;
+            }
+        }
+        if (failed > 0) {
+            log.error("Couldn't write {} carts, will retry", failed, lastError);
+        }
+        evictIdleCarts();
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+
+    private List<CheckoutItemDto> update(User user, Consumer<Map<Integer, Integer>> change) {
+        while (true) {
+            Cart cart = cart(user.getId());
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                change.accept(cart.items);
+                cart.lastAccess = System.currentTimeMillis();
+                dirtyUserIds.add(user.getId());
+                return cart.snapshot();
+            }
+        }
+    }
+
+    /**
+     * the cart is loaded before it is put in the map, so loading doesn't block other carts of the map
+     * if two threads load the same cart, the first one put wins
+     */
+    private Cart cart(int userId) {
+        Cart cart = carts.get(userId);
+        if (cart != null) {
+            return cart;
+        }
+        Cart loaded = new Cart();
+        jdbcTemplate.query(SELECT_ITEMS, rs -> {
+            loaded.items.merge(rs.getInt(1), rs.getInt(2), Integer::sum);
+        }, userId);
+        cart = carts.putIfAbsent(userId, loaded);
+        return cart == null ? loaded : cart;
+    }
+
+    private void write(int userId, Cart cart) {
+        List<Object[]> inserts = new ArrayList<>();
+        synchronized (cart) {
+            cart.items.forEach((productId, count) -> inserts.add(new Object[]{userId, productId, count}));
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(DELETE_ITEMS, userId);
+            jdbcTemplate.batchUpdate(INSERT_ITEM, inserts);
+        });
+    }
+
+    /**
+     * @return -> true if items of products which don't exist anymore have been dropped from the cart
+     */
+    private boolean dropRemovedProducts(int userId, Cart cart) {
+        List<Integer> productIds;
+        synchronized (cart) {
+            productIds = new ArrayList<>(cart.items.keySet());
+        }
+        if (productIds.isEmpty()) {
+            return false;
+        }
+        Set<Integer> removed = new HashSet<>(productIds);
+        jdbcTemplate.query(SELECT_PRODUCTS + String.join(",", Collections.nCopies(productIds.size(), "?")) + ")",
+                rs -> {
+                    removed.remove(rs.getInt(1));
+                }, productIds.toArray());
+        if (removed.isEmpty()) {
+            return false;
+        }
+        synchronized (cart) {
+            cart.items.keySet().removeAll(removed);
+        }
+        log.warn("Dropped products {} from the cart of user {}, they don't exist anymore", removed, userId);
+        return true;
+    }
+
+    private void evictIdleCarts() {
+        long idleSince = System.currentTimeMillis() - idleTimeoutMillis;
+        carts.forEach((userId, cart) -> {
+            synchronized (cart) {
+                if (cart.lastAccess < idleSince && !dirtyUserIds.contains(userId)) {
+                    cart.evicted = true;
+                    carts.remove(userId, cart);
+                }
+            }
+        });
+    }
+
+
+    /**
+     * items of a cart by product id, guarded by the cart itself
+     */
+    private static class Cart {
+
+        private final Map<Integer, Integer> items = new LinkedHashMap<>();
+        private long lastAccess = System.currentTimeMillis();
+        private boolean evicted;
+
+        private List<CheckoutItemDto> snapshot() {
+            List<CheckoutItemDto> snapshot = new ArrayList<>(items.size());
+            items.forEach((productId, count) -> snapshot.add(new CheckoutItemDto(productId, count)));
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.shoppingcart.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the catalog, incremented after every committed product change by admin writes and imports
+ * Catalog read endpoints use it as ETag, so clients polling an unchanged catalog get 304 without any query
+ * Orders don't change it, so clients keep getting 304 during a sale, their count in stock may be older than the database,
+ * like the count in stock of cached pages, orders check the stock themselves
+ * The ETag starts with a random epoch of this node, so ETags of other nodes or of an earlier run never match,
+ * like the caches, it only sees writes of the node it runs on
+ */
+@Component
+public class CatalogVersion {
+
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLong version = new AtomicLong();
+
+
+    /**
+     * method to mark the catalog as changed, called after the change is committed
+     */
+    public void increment() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * @return -> current version, read it before the catalog is read, so the version is never newer than the data
+     */
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * @param version -> catalog version the response has been read at
+     * @return -> weak ETag of the version, weak so it stays valid for compressed responses
+     */
+    public String etag(long version) {
+        return "W/\"" + epoch + "-" + version + "\"";
+    }
+}
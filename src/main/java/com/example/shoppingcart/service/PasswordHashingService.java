@@ -0,0 +1,106 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.exception.PasswordHashingRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.*;
+
+/**
+ * Runs BCrypt hashing on a dedicated pool sized to the cores, with a bounded queue,
+ * so a burst of logins and registrations can't take every servlet thread
+ * When the pool and its queue are full the hash is rejected at once instead of waiting
+ * Metrics: password.hashing (timer, by operation), password.hashing.queue (gauge), password.hashing.rejected (counter)
+ */
+@Service
+public class PasswordHashingService {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final long retryAfterSeconds;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  @Value("${password-hashing.threads:0}") int threads,
+                                  @Value("${password-hashing.queue-capacity:64}") int queueCapacity,
+                                  @Value("${password-hashing.timeout:5000}") long timeoutMillis,
+                                  @Value("${password-hashing.retry-after:1}") long retryAfterSeconds,
+                                  MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMillis = timeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        encodeTimer = Timer.builder("password.hashing").tag("operation", "encode").register(meterRegistry);
+        matchesTimer = Timer.builder("password.hashing").tag("operation", "matches").register(meterRegistry);
+        rejectedCounter = Counter.builder("password.hashing.rejected").register(meterRegistry);
+        Gauge.builder("password.hashing.queue", executor, pool -> pool.getQueue().size()).register(meterRegistry);
+    }
+
+
+    /**
+     * @param rawPassword -> password to hash
+     * @return -> BCrypt hash of the password
+     * @throws PasswordHashingRejectedException -> if the pool is saturated
+     */
+    public String encode(String rawPassword) {
+        return submit(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+
+
+    /**
+     * @param rawPassword     -> password from the request
+     * @param encodedPassword -> stored hash
+     * @return -> true if password matches the hash
+     * @throws PasswordHashingRejectedException -> if the pool is saturated
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return submit(matchesTimer, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+
+    private <T> T submit(Timer timer, Callable<T> hashing) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timer.recordCallable(hashing));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new PasswordHashingRejectedException(retryAfterSeconds, e);
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedCounter.increment();
+            throw new PasswordHashingRejectedException(retryAfterSeconds, e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException(retryAfterSeconds, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
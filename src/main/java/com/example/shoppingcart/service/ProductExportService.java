@@ -0,0 +1,183 @@
+package com.example.shoppingcart.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Product Export Service
+ * Writes the whole catalog to a stream while it is read from the database with a forward-only cursor,
+ * product-export.fetch-size rows at a time, so memory doesn't grow with the catalog
+ * Columns match the bulk import (createdDate as dd.MM.yyyy), so an exported csv can be imported again
+ */
+@Service
+public class ProductExportService {
+
+    public enum Format {
+        JSONL, CSV
+    }
+
+    private static final String SELECT_PRODUCTS = "SELECT id, name, description, type, price, count_in_stock, " +
+            "created_date, updated_date FROM product ORDER BY id";
+    private static final String CSV_HEADER = "id,name,description,type,price,countInStock,createdDate,updatedDate\n";
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public ProductExportService(JdbcTemplate jdbcTemplate,
+                                ObjectMapper objectMapper,
+                                @Value("${product-export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+
+    /**
+     * method to write all products, ordered by id
+     *
+     * @param out    -> stream to write to, flushed but not closed
+     * @param format -> json lines (one product object per line) or csv with a header row
+     * @return -> count of written products
+     */
+    public long export(OutputStream out, Format format) throws IOException {
+        ProductWriter writer = format == Format.CSV ? new CsvWriter(out) : new JsonLinesWriter(out);
+        long[] count = new long[1];
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(SELECT_PRODUCTS,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                return statement;
+            }, (RowCallbackHandler) rs -> {
+                try {
+                    writer.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return count[0];
+    }
+
+
+    private static String formatDate(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime().format(DATE_FORMAT);
+    }
+
+    private static String formatDate(Date date) {
+        return date == null ? null : date.toLocalDate().format(DATE_FORMAT);
+    }
+
+
+    private interface ProductWriter {
+
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void flush() throws IOException;
+    }
+
+
+    private class JsonLinesWriter implements ProductWriter {
+
+        private final JsonGenerator generator;
+        private boolean written;
+
+        private JsonLinesWriter(OutputStream out) throws IOException {
+            generator = objectMapper.getFactory().createGenerator(out)
+                    .setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", rs.getInt(1));
+            generator.writeStringField("name", rs.getString(2));
+            generator.writeStringField("description", rs.getString(3));
+            generator.writeStringField("type", rs.getString(4));
+            generator.writeNumberField("price", rs.getDouble(5));
+            generator.writeNumberField("countInStock", rs.getInt(6));
+            generator.writeStringField("createdDate", formatDate(rs.getTimestamp(7)));
+            generator.writeStringField("updatedDate", formatDate(rs.getDate(8)));
+            generator.writeEndObject();
+            written = true;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (written) {
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        }
+    }
+
+
+    private static class CsvWriter implements ProductWriter {
+
+        private final Writer writer;
+
+        private CsvWriter(OutputStream out) throws IOException {
+            writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write(CSV_HEADER);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            writer.write(String.valueOf(rs.getInt(1)));
+            writer.write(',');
+            writeValue(rs.getString(2));
+            writer.write(',');
+            writeValue(rs.getString(3));
+            writer.write(',');
+            writeValue(rs.getString(4));
+            writer.write(',');
+            writer.write(String.valueOf(rs.getDouble(5)));
+            writer.write(',');
+            writer.write(String.valueOf(rs.getInt(6)));
+            writer.write(',');
+            writeValue(formatDate(rs.getTimestamp(7)));
+            writer.write(',');
+            writeValue(formatDate(rs.getDate(8)));
+            writer.write('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        private void writeValue(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.dto.request.ProductRequestDto;
+import com.example.shoppingcart.dto.response.ImportRowErrorDto;
+import com.example.shoppingcart.dto.response.ProductImportReportDto;
+import com.example.shoppingcart.entity.ProductType;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.*;
+
+/**
+ * Product Import Service
+ * Imports a supplier catalog (ONLY FOR ADMIN) row by row while the file is read, the whole file is never held in memory
+ * Every row is validated like a product saved through POST /product/, valid rows are inserted
+ * in jdbc batches of product-import.batch-size, each batch in its own transaction
+ * Invalid rows are skipped and reported
+ */
+@Service
+@Slf4j
+public class ProductImportService {
+
+    public enum Format {
+        CSV, JSON
+    }
+
+    private static final String INSERT_PRODUCT = "INSERT INTO product " +
+            "(name, description, type, price, count_in_stock, created_date) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final List<String> CSV_COLUMNS =
+            Arrays.asList("name", "description", "type", "price", "countInStock", "createdDate");
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("dd.MM.uuuu").withResolverStyle(ResolverStyle.STRICT);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ProductService productService;
+    private final int batchSize;
+    private final int maxErrors;
+
+    public ProductImportService(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                Validator validator,
+                                ObjectMapper objectMapper,
+                                ProductService productService,
+                                @Value("${product-import.batch-size:1000}") int batchSize,
+                                @Value("${product-import.max-errors:1000}") int maxErrors) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.productService = productService;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+
+
+    /**
+     * method to import products from a csv file with a header row
+     * (name, description, type, price, countInStock, createdDate in any order) or a json array of products
+     *
+     * @param in     -> file content, read once and not closed
+     * @param format -> file format
+     * @return -> count of imported and rejected rows, errors of rejected rows and throughput
+     */
+    public ProductImportReportDto importProducts(InputStream in, Format format) {
+        Import productImport = new Import();
+        try {
+            if (format == Format.CSV) {
+                readCsv(in, productImport);
+            } else {
+                readJson(in, productImport);
+            }
+            productImport.flush();
+        } catch (IOException | IllegalArgumentException | DataAccessException e) {
+            log.warn("Product import aborted at row {}: {}", productImport.rows, e.getMessage());
+            productImport.abortedWith = "Row " + productImport.rows + ": " + e.getMessage();
+        }
+        if (productImport.imported > 0) {
+            productService.refreshCatalog();
+        }
+        long elapsedNanos = System.nanoTime() - productImport.startTime;
+        ProductImportReportDto report = ProductImportReportDto.builder()
+                .importedRows(productImport.imported)
+                .rejectedRows(productImport.rejected)
+                .errors(productImport.errors)
+                .abortedWith(productImport.abortedWith)
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .rowsPerSecond(elapsedNanos == 0 ? 0 : productImport.imported * 1e9 / elapsedNanos)
+                .build();
+        log.info("Imported {} products, rejected {}, {} rows/s",
+                report.getImportedRows(), report.getRejectedRows(), Math.round(report.getRowsPerSecond()));
+        return report;
+    }
+
+
+    private void readCsv(InputStream in, Import productImport) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        if (header == null) {
+            return;
+        }
+        List<String> headerColumns = parseCsvLine(header.startsWith("\uFEFF") ? header.substring(1) : header);
+        int[] columnIndexes = new int[CSV_COLUMNS.size()];
+        for (int i = 0; i < CSV_COLUMNS.size(); i++) {
+            columnIndexes[i] = indexOfIgnoreCase(headerColumns, CSV_COLUMNS.get(i));
+            if (columnIndexes[i] < 0) {
+                throw new IllegalArgumentException("Missing csv column " + CSV_COLUMNS.get(i));
+            }
+        }
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            productImport.rows++;
+            List<String> values = parseCsvLine(line);
+            if (values.size() != headerColumns.size()) {
+                productImport.reject(Collections.singletonList(
+                        "Expected " + headerColumns.size() + " columns, found " + values.size()));
+                continue;
+            }
+            List<String> errors = new ArrayList<>();
+            ProductRequestDto product = ProductRequestDto.builder()
+                    .name(values.get(columnIndexes[0]))
+                    .description(values.get(columnIndexes[1]))
+                    .type(values.get(columnIndexes[2]))
+                    .price(parseNumber(values.get(columnIndexes[3]), "Check your product price", errors))
+                    .countInStock((int) parseNumber(values.get(columnIndexes[4]), "Check your product count in stock", errors))
+                    .createdDate(values.get(columnIndexes[5]))
+                    .build();
+            productImport.add(product, errors);
+        }
+    }
+
+    private void readJson(InputStream in, Import productImport) throws IOException {
+        JsonParser parser = objectMapper.getFactory().createParser(in);
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IllegalArgumentException("Expected a json array of products");
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            productImport.rows++;
+            // a syntactically complete row is read first, so a row with wrong values doesn't stop the import
+            JsonNode row = parser.readValueAsTree();
+            ProductRequestDto product;
+            try {
+                product = objectMapper.treeToValue(row, ProductRequestDto.class);
+            } catch (JsonProcessingException e) {
+                productImport.reject(Collections.singletonList("Check your product fields: " + e.getOriginalMessage()));
+                continue;
+            }
+            productImport.add(product, new ArrayList<>());
+        }
+        if (parser.currentToken() != JsonToken.END_ARRAY) {
+            throw new IllegalArgumentException("Expected a product object");
+        }
+    }
+
+
+    private static double parseNumber(String value, String error, List<String> errors) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            errors.add(error);
+            return 0;
+        }
+    }
+
+    private static int indexOfIgnoreCase(List<String> columns, String column) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).trim().equalsIgnoreCase(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * splits a csv line by commas, a value may be quoted to hold commas, "" in a quoted value is a quote
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+
+    /**
+     * state of one import, rows waiting for the next batch and the report so far
+     */
+    private class Import {
+
+        private final long startTime = System.nanoTime();
+        private final List<Object[]> batch = new ArrayList<>(batchSize);
+        // numbers of the rows in batch, to report them if the batch can't be written
+        private final List<Long> batchRows = new ArrayList<>(batchSize);
+        private final List<ImportRowErrorDto> errors = new ArrayList<>();
+        private long rows;
+        private long imported;
+        private long rejected;
+        private String abortedWith;
+
+        private void add(ProductRequestDto product, List<String> errors) {
+            for (ConstraintViolation<ProductRequestDto> violation : validator.validate(product)) {
+                errors.add(violation.getMessage());
+            }
+            ProductType type = null;
+            try {
+                type = ProductType.valueOf(String.valueOf(product.getType()).trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                errors.add("Check your product type, should be one of " + Arrays.toString(ProductType.values()));
+            }
+            LocalDate createdDate = null;
+            try {
+                createdDate = LocalDate.parse(String.valueOf(product.getCreatedDate()).trim(), DATE_FORMAT);
+            } catch (DateTimeParseException e) {
+                errors.add("Check your product created date, should be dd.MM.yyyy");
+            }
+            if (!errors.isEmpty()) {
+                reject(errors);
+                return;
+            }
+            batch.add(new Object[]{product.getName(), product.getDescription(), type.name(), product.getPrice(),
+                    product.getCountInStock(), Timestamp.valueOf(createdDate.atStartOfDay())});
+            batchRows.add(rows);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private void reject(List<String> rowErrors) {
+            reject(rows, rowErrors);
+        }
+
+        private void reject(long row, List<String> rowErrors) {
+            rejected++;
+            if (errors.size() < maxErrors) {
+                errors.add(new ImportRowErrorDto(row, rowErrors));
+            }
+        }
+
+        /**
+         * if the batch can't be written its rows are rejected with the database error, and the import is aborted
+         */
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_PRODUCT, batch));
+                imported += batch.size();
+            } catch (DataAccessException e) {
+                List<String> batchError = Collections.singletonList(
+                        "Batch couldn't be written: " + e.getMostSpecificCause().getMessage());
+                for (Long row : batchRows) {
+                    reject(row, batchError);
+                }
+                throw e;
+            } finally {
+                batch.clear();
+                batchRows.clear();
+            }
+        }
+    }
+}
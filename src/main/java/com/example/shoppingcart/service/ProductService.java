@@ -1,32 +1,57 @@
 package com.example.shoppingcart.service;
 
+import com.example.shoppingcart.config.ReadFromReplica;
 import com.example.shoppingcart.dto.request.ProductRequestDto;
+import com.example.shoppingcart.dto.response.PageResponseDto;
 import com.example.shoppingcart.dto.response.ProductResponseDto;
 import com.example.shoppingcart.entity.Product;
+import com.example.shoppingcart.entity.ProductSortKey;
 import com.example.shoppingcart.entity.ProductType;
+import com.example.shoppingcart.mapper.ProductMapper;
 import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.search.ProductSearchIndex;
+import com.example.shoppingcart.search.ProductSortIndex;
+import com.example.shoppingcart.util.CursorUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
-import org.modelmapper.ModelMapper;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * Product Service
  * This service class contains all business logic that concern product
+ * Catalog reads are cached (see spring.cache in application.yml), the admin write methods invalidate them
  */
 @Service
 @RequiredArgsConstructor
 public class ProductService {
 
+    private static final String ID = "id";
+
     private final ProductRepository productRepository;
-    private final ModelMapper modelMapper;
+    private final ProductMapper productMapper;
+    private final ProductSearchIndex searchIndex;
+    private final ProductSortIndex sortIndex;
+    private final CatalogVersion catalogVersion;
+    private final StockLeaseService stockLeaseService;
     private final SimpleDateFormat sdf = new SimpleDateFormat("dd.MM.yyyy");
 
 
@@ -37,6 +62,10 @@ public class ProductService {
      * @return -> saved product dto
      */
     @SneakyThrows
+    @Caching(evict = {
+            @CacheEvict(value = "products", allEntries = true),
+            @CacheEvict(value = "productsByType", allEntries = true)
+    })
     public ProductResponseDto save(ProductRequestDto createProductRequestDto) {
         Product newProduct = Product.builder()
                 .name(createProductRequestDto.getName())
@@ -47,26 +76,39 @@ public class ProductService {
                 .price(createProductRequestDto.getPrice())
                 .build();
         Product savedProduct = productRepository.save(newProduct);
-        return modelMapper.map(savedProduct, ProductResponseDto.class);
+        searchIndex.index(savedProduct);
+        sortIndex.index(savedProduct);
+        catalogVersion.increment();
+        return productMapper.toDto(savedProduct);
     }
 
 
     /**
      * method to update the product(ONLY FOR ADMIN)
+     * the new count in stock is absolute, so leases of the product are cancelled in the same transaction
      *
      * @param product                 -> product which will be updated
      * @param updateProductRequestDto -> product new data
      * @return -> updates and returns ProductRepsonseDto
      */
     @SneakyThrows
+    @Caching(evict = {
+            @CacheEvict(value = "products", allEntries = true),
+            @CacheEvict(value = "productsByType", allEntries = true)
+    })
+    @Transactional
     public ProductResponseDto update(Product product, ProductRequestDto updateProductRequestDto) {
+        stockLeaseService.cancel(product.getId());
         product.setName(updateProductRequestDto.getName());
         product.setDescription(updateProductRequestDto.getDescription());
         product.setCountInStock(updateProductRequestDto.getCountInStock());
         product.setCreatedDate(sdf.parse(updateProductRequestDto.getCreatedDate()));
         product.setUpdatedDate(LocalDate.now());
         Product updatedProduct = productRepository.save(product);
-        return modelMapper.map(updatedProduct, ProductResponseDto.class);
+        searchIndex.index(updatedProduct);
+        sortIndex.index(updatedProduct);
+        catalogVersion.increment();
+        return productMapper.toDto(updatedProduct);
     }
 
 
@@ -75,71 +117,126 @@ public class ProductService {
      *
      * @param product -> product which will be removed
      */
+    @Caching(evict = {
+            @CacheEvict(value = "products", allEntries = true),
+            @CacheEvict(value = "productsByType", allEntries = true)
+    })
     public void delete(Product product) {
         productRepository.delete(product);
+        searchIndex.remove(product.getId());
+        sortIndex.remove(product.getId());
+        catalogVersion.increment();
     }
 
 
     /**
-     * method to show all products
+     * method to show a page of all products, ordered by id
+     * read from the primary, a page read from a lagging replica would be cached for everyone
      *
-     * @return -> list of existing products
+     * @param cursor -> continuation token of the previous page, null for the first page
+     * @param size   -> page size, capped by CursorUtil.MAX_PAGE_SIZE
+     * @return -> page of existing products
      */
-    public List<ProductResponseDto> findAll() {
-        List<Product> products = productRepository.findAll();
-        return products.stream()
-                .map(product -> modelMapper.map(product, ProductResponseDto.class))
-                .collect(Collectors.toList());
+    @Cacheable("products")
+    public PageResponseDto<ProductResponseDto> findAll(String cursor, int size) {
+        long version = catalogVersion.current();
+        CursorUtil.Cursor after = CursorUtil.decode(cursor, ID);
+        int pageSize = CursorUtil.pageSize(size);
+        List<Product> products = productRepository.findByIdGreaterThanOrderByIdAsc(
+                after == null ? 0 : after.getLastId(), PageRequest.of(0, pageSize + 1));
+        PageResponseDto<ProductResponseDto> page = CursorUtil.toPage(products, pageSize,
+                product -> CursorUtil.encode(ID, product.getId(), product.getId()), productMapper::toDto);
+        page.setCatalogVersion(version);
+        return page;
     }
 
 
     /**
      * method to search a product by keyword
+     * keywords are looked up in the search index, only the CursorUtil.MAX_PAGE_SIZE most relevant products are loaded by id
      *
      * @param keyword -> keyword written by customer
-     * @return ->  list of products found by keyword
+     * @return ->  list of products found by keyword, most relevant first
      */
+    @ReadFromReplica
     public List<ProductResponseDto> findByKeyword(String keyword) {
-        List<Product> products = productRepository.findAll(keyword);
-        return products.stream()
-                .map(product -> modelMapper.map(product, ProductResponseDto.class))
+        List<Integer> productIds = searchIndex.search(keyword, CursorUtil.MAX_PAGE_SIZE);
+        if (productIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Integer, Product> productsById = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return productIds.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .map(productMapper::toDto)
                 .collect(Collectors.toList());
     }
 
 
     /**
-     * method to show all products by product type
+     * method to show a page of products by product type, ordered by id
+     * read from the primary, a page read from a lagging replica would be cached for everyone
      *
-     * @param type -> type, chosen by customer
-     * @return -> list of existing products of chosen type
+     * @param type   -> type, chosen by customer
+     * @param cursor -> continuation token of the previous page, null for the first page
+     * @param size   -> page size, capped by CursorUtil.MAX_PAGE_SIZE
+     * @return -> page of existing products of chosen type
      */
-    public List<ProductResponseDto> findByType(String type) {
+    @Cacheable("productsByType")
+    public PageResponseDto<ProductResponseDto> findByType(String type, String cursor, int size) {
+        long version = catalogVersion.current();
         ProductType productType = ProductType.valueOf(type);
-        List<Product> productsByType = productRepository.findProductsByType(productType);
-        return productsByType.stream()
-                .map(product -> modelMapper.map(product, ProductResponseDto.class))
-                .collect(Collectors.toList());
+        CursorUtil.Cursor after = CursorUtil.decode(cursor, ID);
+        int pageSize = CursorUtil.pageSize(size);
+        List<Product> productsByType = productRepository.findProductsByTypeAndIdGreaterThanOrderByIdAsc(
+                productType, after == null ? 0 : after.getLastId(), PageRequest.of(0, pageSize + 1));
+        PageResponseDto<ProductResponseDto> page = CursorUtil.toPage(productsByType, pageSize,
+                product -> CursorUtil.encode(ID, product.getId(), product.getId()), productMapper::toDto);
+        page.setCatalogVersion(version);
+        return page;
     }
 
 
     /**
-     * method to show sorted products by product type
+     * method to show a page of sorted products by product type
+     * products with equal sorted values are ordered by id, so the order is stable across pages
+     * pages are sliced from the sort index, the database is queried only until the index is built
      *
-     * @param type -> type, chosen by customer
-     * @param sort -> sorting(name,price,createdDate, asc or desc)
-     * @return -> sorted list of existing products of chosen type
+     * @param type      -> type, chosen by customer
+     * @param sortKey   -> sorting(name,price,createdDate)
+     * @param ascending -> direction of sorting
+     * @param cursor    -> continuation token of the previous page, null for the first page
+     * @param size      -> page size, capped by CursorUtil.MAX_PAGE_SIZE
+     * @return -> sorted page of existing products of chosen type
      */
-    public List<ProductResponseDto> findByTypeSorted(String type, Sort sort) {
+    @ReadFromReplica
+    public PageResponseDto<ProductResponseDto> findByTypeSorted(String type, ProductSortKey sortKey, boolean ascending,
+                                                                String cursor, int size) {
+        long version = catalogVersion.current();
         ProductType productType = ProductType.valueOf(type);
-        List<Product> productsByType = productRepository.findProductsByType(productType, sort);
-        return productsByType.stream()
-                .map(product -> modelMapper.map(product, ProductResponseDto.class))
-                .collect(Collectors.toList());
+        CursorUtil.Cursor after = CursorUtil.decode(cursor, sortKey.getProperty());
+        int pageSize = CursorUtil.pageSize(size);
+        Object afterValue = after == null ? null : after.getValue(sortKey.getType());
+        int afterId = after == null ? 0 : after.getLastId();
+        List<Product> productsByType;
+        if (sortIndex.isBuilt()) {
+            productsByType = sortIndex.page(productType, sortKey, ascending, afterValue, afterId, pageSize + 1);
+        } else {
+            Sort.Order order = ascending ? Sort.Order.asc(sortKey.getProperty()) : Sort.Order.desc(sortKey.getProperty());
+            productsByType = productRepository.findProductsByType(productType, order, afterValue, afterId, pageSize + 1);
+        }
+        PageResponseDto<ProductResponseDto> page = CursorUtil.toPage(productsByType, pageSize,
+                product -> CursorUtil.encode(sortKey.getProperty(), sortKey.valueOf(product), product.getId()),
+                productMapper::toDto);
+        page.setCatalogVersion(version);
+        return page;
     }
 
 
     /**
      * method to find Optional Product by id
+     * not cached, the entity is mutable and its stock changes with every order
      *
      * @param productId -> product id
      * @return -> Optional Product
@@ -148,4 +245,48 @@ public class ProductService {
         return productRepository.findById(productId);
     }
 
+
+    /**
+     * @param productId -> product id
+     * @return -> true if the product exists, checked without loading it
+     */
+    public boolean exists(int productId) {
+        return productRepository.existsById(productId);
+    }
+
+
+    /**
+     * builds the search and sort indexes from all existing products, when the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildSearchIndex() {
+        List<Product> products = productRepository.findAll();
+        searchIndex.rebuild(products);
+        sortIndex.rebuild(products);
+    }
+
+
+    /**
+     * rebuilds the search and sort indexes every product-index.rebuild-interval ms,
+     * so products changed by other nodes are served no longer stale than cached catalog pages
+     */
+    @Scheduled(initialDelayString = "${product-index.rebuild-interval:30000}",
+            fixedDelayString = "${product-index.rebuild-interval:30000}")
+    public void rebuildIndexes() {
+        buildSearchIndex();
+    }
+
+
+    /**
+     * method to drop cached catalog pages and rebuild the search and sort indexes,
+     * after products have been written around this service (bulk import)
+     */
+    @Caching(evict = {
+            @CacheEvict(value = "products", allEntries = true),
+            @CacheEvict(value = "productsByType", allEntries = true)
+    })
+    public void refreshCatalog() {
+        buildSearchIndex();
+        catalogVersion.increment();
+    }
 }
@@ -0,0 +1,412 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.dto.response.SalesAnalyticsDto;
+import com.example.shoppingcart.dto.response.TopSellerDto;
+import com.example.shoppingcart.entity.OrderStatus;
+import com.example.shoppingcart.entity.Product;
+import com.example.shoppingcart.entity.ProductType;
+import com.example.shoppingcart.entity.SalesRollup;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.repository.SalesRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sales analytics kept as rollups, so admins read them without scanning user_orders
+ * Every order adds its count and revenue (count * price) to the rollup of its status,
+ * and, while it is awaiting for payment or delivered, to the rollups of its product type and of its product
+ * UserOrderService reports every order change once its transaction commits
+ * Every flush-interval the changes of this node since the last flush are added to the rows of sales_rollup
+ * (UPDATE ... SET orders = orders + ?), so the nodes sharing the database never overwrite each other's counts,
+ * then the totals of all nodes are read back and top sellers are ranked,
+ * so reading the analytics doesn't depend on the count of orders or products
+ * A node shows the totals of the last flush plus its own changes since, changes of other nodes show up after its next flush
+ * Orders don't keep the price they were placed at, so revenue is counted at the price of the product when its last order
+ * has been placed, or, after a restart, when the product has been read again
+ * If persisted rollups are lost or drifted (changes between the last flush and a crash), rebuild() recomputes them
+ */
+@Slf4j
+@Service
+public class SalesAnalyticsService {
+
+    private static final String TYPE = "TYPE:";
+    private static final String PRODUCT = "PRODUCT:";
+    private static final String STATUS = "STATUS:";
+    private static final Set<OrderStatus> SOLD = EnumSet.of(OrderStatus.AWAITING_FOR_PAYMENT, OrderStatus.DELIVERED);
+    private static final String INCREMENT_ROLLUP = "UPDATE sales_rollup " +
+            "SET orders = orders + ?, units = units + ?, revenue = revenue + ?, updated_date = ? WHERE name = ?";
+    private static final String INSERT_ROLLUP = "INSERT INTO sales_rollup " +
+            "(orders, units, revenue, updated_date, name) VALUES (?, ?, ?, ?, ?)";
+    private static final String SELECT_ORDER_TOTALS = "SELECT o.product_id, p.type, p.price, o.status, " +
+            "COUNT(*) AS orders, SUM(o.count_of_product) AS units " +
+            "FROM user_orders o JOIN product p ON p.id = o.product_id " +
+            "GROUP BY o.product_id, p.type, p.price, o.status";
+
+    private final SalesRollupRepository rollupRepository;
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int topSellerCount;
+    // name -> rollup, replaced as a whole by rebuild()
+    private volatile Map<String, Rollup> rollups = new ConcurrentHashMap<>();
+    private final Map<Integer, ProductInfo> products = new ConcurrentHashMap<>();
+    private volatile List<TopSellerDto> topSellers = Collections.emptyList();
+    private volatile LocalDateTime rankedDate;
+
+    public SalesAnalyticsService(SalesRollupRepository rollupRepository,
+                                 ProductRepository productRepository,
+                                 JdbcTemplate jdbcTemplate,
+                                 @Value("${sales-analytics.top-sellers:10}") int topSellerCount) {
+        this.rollupRepository = rollupRepository;
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.topSellerCount = topSellerCount;
+    }
+
+
+    /**
+     * method to count an order change once the current transaction commits, or right away without a transaction
+     *
+     * @param product   -> ordered product, its name, type and price are kept for later changes of its orders
+     * @param count     -> count of items of the order
+     * @param oldStatus -> status before the change, null for a new order
+     * @param newStatus -> status after the change, null for a deleted order
+     */
+    public void orderChangedAfterCommit(Product product, int count, OrderStatus oldStatus, OrderStatus newStatus) {
+        ProductInfo info = new ProductInfo(product);
+        products.put(product.getId(), info);
+        orderChangedAfterCommit(product.getId(), info, count, oldStatus, newStatus);
+    }
+
+    /**
+     * same as above, for orders of which only the product id is at hand, the product is read if it isn't kept yet
+     */
+    public void orderChangedAfterCommit(int productId, int count, OrderStatus oldStatus, OrderStatus newStatus) {
+        ProductInfo info = productInfo(productId);
+        if (info == null) {
+            log.warn("Sales of product {} aren't counted, the product doesn't exist", productId);
+            return;
+        }
+        orderChangedAfterCommit(productId, info, count, oldStatus, newStatus);
+    }
+
+    /**
+     * @return -> revenue per product type, order count per status, top sellers as of the last ranking
+     */
+    public SalesAnalyticsDto analytics() {
+        Map<String, Rollup> current = rollups;
+        Map<ProductType, Double> revenueByType = new EnumMap<>(ProductType.class);
+        for (ProductType type : ProductType.values()) {
+            Rollup rollup = current.get(TYPE + type.name());
+            revenueByType.put(type, rollup == null ? 0 : rollup.revenue());
+        }
+        Map<OrderStatus, Long> ordersByStatus = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            Rollup rollup = current.get(STATUS + status.name());
+            ordersByStatus.put(status, rollup == null ? 0 : rollup.orders());
+        }
+        return SalesAnalyticsDto.builder()
+                .revenueByType(revenueByType)
+                .ordersByStatus(ordersByStatus)
+                .topSellers(topSellers)
+                .rankedDate(rankedDate)
+                .build();
+    }
+
+
+    /**
+     * loads the persisted rollups when the application has started, they are rebuilt if there are none but orders
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (rollupRepository.count() == 0) {
+            Integer orders = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_orders", Integer.class);
+            if (orders != null && orders > 0) {
+                rebuild();
+                return;
+            }
+        }
+        loadTotals();
+        rankTopSellers();
+    }
+
+    /**
+     * method to add the changes of this node since the last run to the persisted rollups,
+     * to read back the totals of all nodes and to rank the top sellers again
+     * changes which couldn't be written are kept and written by the next run
+     */
+    @Scheduled(fixedDelayString = "${sales-analytics.flush-interval:10000}")
+    public synchronized void persist() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Map.Entry<String, Rollup>> entries = new ArrayList<>(rollups.entrySet());
+        for (int i = 0; i < entries.size(); i++) {
+            Rollup rollup = entries.get(i).getValue();
+            SalesRollup changes = rollup.takeChanges(entries.get(i).getKey(), now);
+            if (changes == null) {
+                continue;
+            }
+            try {
+                increment(changes);
+            } catch (DataAccessException e) {
+                rollup.restoreChanges(changes);
+                log.error("Couldn't persist sales rollup {}, will retry", changes.getName(), e);
+                return;
+            }
+        }
+        loadTotals();
+        rankTopSellers();
+    }
+
+    /**
+     * method to recompute all rollups from user_orders and replace the persisted ones, for recovery
+     * changes of orders committed while the orders are read, and changes other nodes haven't flushed yet,
+     * may be counted twice or not at all, so run it when it's quiet
+     *
+     * @return -> analytics of the rebuilt rollups
+     */
+    public synchronized SalesAnalyticsDto rebuild() {
+        long startTime = System.currentTimeMillis();
+        Map<String, Rollup> rebuilt = new ConcurrentHashMap<>();
+        jdbcTemplate.query(SELECT_ORDER_TOTALS, rs -> {
+            ProductInfo info = new ProductInfo(ProductType.valueOf(rs.getString("type")), rs.getDouble("price"));
+            add(rebuilt, rs.getInt("product_id"), info, OrderStatus.valueOf(rs.getString("status")),
+                    rs.getLong("orders"), rs.getLong("units"));
+        });
+        LocalDateTime now = LocalDateTime.now();
+        List<SalesRollup> rows = new ArrayList<>(rebuilt.size());
+        for (Map.Entry<String, Rollup> entry : rebuilt.entrySet()) {
+            SalesRollup row = entry.getValue().takeChanges(entry.getKey(), now);
+            entry.getValue().setTotals(row.getOrders(), row.getUnits(), row.getRevenue());
+            rows.add(row);
+        }
+        rollups = rebuilt;
+        rollupRepository.deleteAllInBatch();
+        rollupRepository.saveAll(rows);
+        rankTopSellers();
+        log.info("{} sales rollups rebuilt in {} ms", rows.size(), System.currentTimeMillis() - startTime);
+        return analytics();
+    }
+
+
+    /**
+     * adds the changes to the row of the rollup, the row is created if no node has persisted it yet
+     */
+    private void increment(SalesRollup changes) {
+        Object[] args = {changes.getOrders(), changes.getUnits(), changes.getRevenue(),
+                Timestamp.valueOf(changes.getUpdatedDate()), changes.getName()};
+        if (jdbcTemplate.update(INCREMENT_ROLLUP, args) > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(INSERT_ROLLUP, args);
+        } catch (DuplicateKeyException e) {
+            // inserted by another node meanwhile
+            jdbcTemplate.update(INCREMENT_ROLLUP, args);
+        }
+    }
+
+    /**
+     * sets the totals of all rollups to the persisted ones, rollups without a row (deleted by a rebuild) to 0
+     */
+    private void loadTotals() {
+        Map<String, Rollup> current = rollups;
+        Set<String> persisted = new HashSet<>();
+        for (SalesRollup row : rollupRepository.findAll()) {
+            persisted.add(row.getName());
+            current.computeIfAbsent(row.getName(), name -> new Rollup()).setTotals(row.getOrders(), row.getUnits(), row.getRevenue());
+        }
+        for (Map.Entry<String, Rollup> entry : current.entrySet()) {
+            if (!persisted.contains(entry.getKey())) {
+                entry.getValue().setTotals(0, 0, 0);
+            }
+        }
+    }
+
+
+    private void orderChangedAfterCommit(int productId, ProductInfo info, int count,
+                                         OrderStatus oldStatus, OrderStatus newStatus) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            orderChanged(productId, info, count, oldStatus, newStatus);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                orderChanged(productId, info, count, oldStatus, newStatus);
+            }
+        });
+    }
+
+    private void orderChanged(int productId, ProductInfo info, int count, OrderStatus oldStatus, OrderStatus newStatus) {
+        Map<String, Rollup> current = rollups;
+        if (oldStatus != null) {
+            add(current, productId, info, oldStatus, -1, -count);
+        }
+        if (newStatus != null) {
+            add(current, productId, info, newStatus, 1, count);
+        }
+    }
+
+    private static void add(Map<String, Rollup> rollups, int productId, ProductInfo info, OrderStatus status,
+                            long orders, long units) {
+        double revenue = units * info.price;
+        rollups.computeIfAbsent(STATUS + status.name(), name -> new Rollup()).add(orders, units, revenue);
+        if (SOLD.contains(status)) {
+            rollups.computeIfAbsent(TYPE + info.type.name(), name -> new Rollup()).add(orders, units, revenue);
+            rollups.computeIfAbsent(PRODUCT + productId, name -> new Rollup()).add(orders, units, revenue);
+        }
+    }
+
+    private void rankTopSellers() {
+        PriorityQueue<TopSellerDto> best = new PriorityQueue<>(Comparator.comparingLong(TopSellerDto::getUnits));
+        for (Map.Entry<String, Rollup> entry : rollups.entrySet()) {
+            if (!entry.getKey().startsWith(PRODUCT)) {
+                continue;
+            }
+            long units = entry.getValue().units();
+            if (units <= 0 || (best.size() == topSellerCount && best.peek().getUnits() >= units)) {
+                continue;
+            }
+            best.add(TopSellerDto.builder()
+                    .productId(Integer.parseInt(entry.getKey().substring(PRODUCT.length())))
+                    .units(units)
+                    .revenue(entry.getValue().revenue())
+                    .build());
+            if (best.size() > topSellerCount) {
+                best.poll();
+            }
+        }
+        List<TopSellerDto> ranked = new ArrayList<>(best);
+        ranked.sort(Comparator.comparingLong(TopSellerDto::getUnits).reversed());
+        for (TopSellerDto topSeller : ranked) {
+            ProductInfo info = productInfo(topSeller.getProductId());
+            topSeller.setName(info == null ? null : info.name);
+        }
+        topSellers = Collections.unmodifiableList(ranked);
+        rankedDate = LocalDateTime.now();
+    }
+
+    /**
+     * @return -> kept product info, the product is read if it isn't kept yet or has no name, null if it doesn't exist
+     */
+    private ProductInfo productInfo(int productId) {
+        ProductInfo info = products.get(productId);
+        if (info != null && info.name != null) {
+            return info;
+        }
+        Optional<Product> product = productRepository.findById(productId);
+        if (!product.isPresent()) {
+            return info;
+        }
+        info = new ProductInfo(product.get());
+        products.put(productId, info);
+        return info;
+    }
+
+
+    /**
+     * totals persisted by all nodes as of the last flush, plus the changes of this node since
+     * changes are few per order, so they are guarded by the rollup itself
+     */
+    private static final class Rollup {
+
+        private long orders;
+        private long units;
+        private double revenue;
+        private long changedOrders;
+        private long changedUnits;
+        private double changedRevenue;
+        private boolean changed;
+
+        private synchronized void add(long orders, long units, double revenue) {
+            changedOrders += orders;
+            changedUnits += units;
+            changedRevenue += revenue;
+            changed = true;
+        }
+
+        private synchronized long orders() {
+            return orders + changedOrders;
+        }
+
+        private synchronized long units() {
+            return units + changedUnits;
+        }
+
+        private synchronized double revenue() {
+            return revenue + changedRevenue;
+        }
+
+        private synchronized void setTotals(long orders, long units, double revenue) {
+            this.orders = orders;
+            this.units = units;
+            this.revenue = revenue;
+        }
+
+        /**
+         * @return -> changes since the last call, moved into the totals, null if there are none
+         */
+        private synchronized SalesRollup takeChanges(String name, LocalDateTime updatedDate) {
+            if (!changed) {
+                return null;
+            }
+            SalesRollup changes = SalesRollup.builder()
+                    .name(name)
+                    .orders(changedOrders)
+                    .units(changedUnits)
+                    .revenue(changedRevenue)
+                    .updatedDate(updatedDate)
+                    .build();
+            orders += changedOrders;
+            units += changedUnits;
+            revenue += changedRevenue;
+            changedOrders = 0;
+            changedUnits = 0;
+            changedRevenue = 0;
+            changed = false;
+            return changes;
+        }
+
+        /**
+         * method to take back changes which couldn't be persisted, they are returned by the next takeChanges()
+         */
+        private synchronized void restoreChanges(SalesRollup changes) {
+            orders -= changes.getOrders();
+            units -= changes.getUnits();
+            revenue -= changes.getRevenue();
+            add(changes.getOrders(), changes.getUnits(), changes.getRevenue());
+        }
+    }
+
+    private static final class ProductInfo {
+
+        private final String name;
+        private final ProductType type;
+        private final double price;
+
+        private ProductInfo(Product product) {
+            this.name = product.getName();
+            this.type = product.getType();
+            this.price = product.getPrice();
+        }
+
+        private ProductInfo(ProductType type, double price) {
+            this.name = null;
+            this.type = type;
+            this.price = price;
+        }
+    }
+}
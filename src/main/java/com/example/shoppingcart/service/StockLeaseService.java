@@ -0,0 +1,356 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.entity.StockLease;
+import com.example.shoppingcart.metrics.ShoppingCartMetrics;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.repository.StockLeaseRepository;
+import com.example.shoppingcart.search.ProductSortIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stock Lease Service
+ * Orders of a product all decrement the same product row, when a product sells fast the orders of all nodes queue on its lock
+ * A product with at least hot-threshold reservations in one detection-interval becomes hot,
+ * this node then claims leases of block-size items of it, each in one transaction taking the items out of the product row
+ * and inserting a stock_lease row, and spreads its orders over leases-per-product leases
+ * An order reserves from a lease in memory first, then decrements the units of the lease row in the order transaction,
+ * so the order and the lease change commit together and a lease always knows the items not ordered yet
+ * Leases are claimed and given back by the scheduler and a refill thread, never by an order thread,
+ * so an order holds a single connection and no lock of this service
+ * Leases expire timeout ms after their claim, whichever node sees an expired lease first gives its units back
+ * to the product, also leases of nodes which crashed. Leases are given back earlier when the product cools down,
+ * when they are used up and on shutdown
+ * While items are leased the product row, catalog pages and the sort index show the items not leased by any node
+ * Leasing is off unless stock-lease.enabled is set
+ */
+@Slf4j
+@Service
+public class StockLeaseService {
+
+    private final ProductRepository productRepository;
+    private final StockLeaseRepository leaseRepository;
+    private final ShoppingCartMetrics metrics;
+    private final ProductSortIndex sortIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long hotThreshold;
+    private final int blockSize;
+    private final int leasesPerProduct;
+    private final long timeoutMillis;
+    // owner of the leases of this node, a restarted node doesn't own the leases of its previous run, they expire
+    private final String owner = UUID.randomUUID().toString();
+    // product id -> reservations since the last detection
+    private final Map<Integer, LongAdder> reservations = new ConcurrentHashMap<>();
+    private final Set<Integer> hotProductIds = ConcurrentHashMap.newKeySet();
+    // product id -> leases of this node
+    private final Map<Integer, List<Lease>> leases = new ConcurrentHashMap<>();
+    private final Set<Integer> refilling = ConcurrentHashMap.newKeySet();
+    private final ExecutorService refillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stock-lease-refill");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean shutdown;
+
+    public StockLeaseService(ProductRepository productRepository,
+                             StockLeaseRepository leaseRepository,
+                             ShoppingCartMetrics metrics,
+                             ProductSortIndex sortIndex,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${stock-lease.enabled:false}") boolean enabled,
+                             @Value("${stock-lease.hot-threshold:20}") long hotThreshold,
+                             @Value("${stock-lease.block-size:50}") int blockSize,
+                             @Value("${stock-lease.leases-per-product:4}") int leasesPerProduct,
+                             @Value("${stock-lease.timeout:10000}") long timeoutMillis) {
+        this.productRepository = productRepository;
+        this.leaseRepository = leaseRepository;
+        this.metrics = metrics;
+        this.sortIndex = sortIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.hotThreshold = hotThreshold;
+        this.blockSize = blockSize;
+        this.leasesPerProduct = leasesPerProduct;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+
+    /**
+     * method to reserve items of a hot product from a lease of this node, must be called in the transaction of the order
+     * the items go back to the lease if the transaction rolls back
+     * if no lease has enough items, new leases are claimed in the background and this order is left to the product row
+     *
+     * @param productId -> product id
+     * @param count     -> count of items to reserve, above 0
+     * @return -> true if the items are reserved, false if the caller has to reserve them from the product row
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean reserve(int productId, int count) {
+        if (!enabled || shutdown) {
+            return false;
+        }
+        reservations.computeIfAbsent(productId, id -> new LongAdder()).increment();
+        if (!hotProductIds.contains(productId)) {
+            return false;
+        }
+        List<Lease> productLeases = leases.getOrDefault(productId, Collections.emptyList());
+        Lease[] candidates = productLeases.toArray(new Lease[0]);
+        int start = candidates.length == 0 ? 0 : ThreadLocalRandom.current().nextInt(candidates.length);
+        for (int i = 0; i < candidates.length; i++) {
+            Lease lease = candidates[(start + i) % candidates.length];
+            if (!lease.take(count)) {
+                continue;
+            }
+            if (leaseRepository.decrementUnits(lease.id, count) == 0) {
+                // given back meanwhile, by this node or, once expired, by another one
+                lease.returned = true;
+                continue;
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        lease.available.addAndGet(count);
+                    }
+                }
+            });
+            if (lease.available.get() == 0) {
+                refill(productId);
+            }
+            return true;
+        }
+        refill(productId);
+        return false;
+    }
+
+
+    /**
+     * method to switch products into and out of lease mode by their reservations since the last detection,
+     * to give back leases which cooled down, are used up or expired (of any node), and to claim leases for hot products
+     */
+    @Scheduled(fixedDelayString = "${stock-lease.detection-interval:1000}")
+    public void detect() {
+        if (!enabled) {
+            return;
+        }
+        for (Map.Entry<Integer, LongAdder> entry : reservations.entrySet()) {
+            long count = entry.getValue().sumThenReset();
+            if (count >= hotThreshold) {
+                if (hotProductIds.add(entry.getKey())) {
+                    log.info("Product {} is hot, {} reservations, its stock is leased in blocks of {}", entry.getKey(), count, blockSize);
+                }
+            } else {
+                hotProductIds.remove(entry.getKey());
+                if (count == 0) {
+                    reservations.remove(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        for (Map.Entry<Integer, List<Lease>> entry : leases.entrySet()) {
+            boolean hot = hotProductIds.contains(entry.getKey());
+            for (Lease lease : entry.getValue()) {
+                if (!hot || lease.returned || lease.available.get() == 0) {
+                    giveBack(lease);
+                }
+            }
+            entry.getValue().removeIf(lease -> lease.returned);
+        }
+        for (StockLease expired : leaseRepository.findByExpiresAtBefore(LocalDateTime.now())) {
+            giveBack(expired.getId());
+        }
+        for (Integer productId : hotProductIds) {
+            fill(productId);
+        }
+    }
+
+    /**
+     * method to give back all leases of this node, products stay hot and claim again at the next detection
+     */
+    public void releaseAll() {
+        if (!enabled) {
+            return;
+        }
+        for (List<Lease> productLeases : leases.values()) {
+            for (Lease lease : productLeases) {
+                giveBack(lease);
+            }
+        }
+        for (StockLease lease : leaseRepository.findByOwner(owner)) {
+            giveBack(lease.getId());
+        }
+    }
+
+    /**
+     * method to cancel all leases of a product, of any node, before its stock is set to an absolute count
+     * their units are not given back, they are part of the new count, must be called in the transaction setting it
+     *
+     * @param productId -> product id
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void cancel(int productId) {
+        if (!enabled) {
+            return;
+        }
+        for (Lease lease : leases.getOrDefault(productId, Collections.emptyList())) {
+            lease.returned = true;
+        }
+        // waits for orders which have taken units of the leases, leases of other nodes fail their next order
+        leaseRepository.deleteByProductId(productId);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        shutdown = true;
+        refillExecutor.shutdown();
+        if (!enabled) {
+            return;
+        }
+        refillExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        try {
+            releaseAll();
+        } catch (DataAccessException e) {
+            // each lease is given back on its own, this is the lookup of the leases of this node failing
+            // leases not given back expire and are given back by another node
+            log.error("Can't find the stock leases of this node", e);
+        }
+    }
+
+
+    private void refill(int productId) {
+        if (!shutdown && refilling.add(productId)) {
+            try {
+                refillExecutor.execute(() -> {
+                    try {
+                        fill(productId);
+                    } catch (RuntimeException e) {
+                        log.error("Can't claim a stock lease of product {}", productId, e);
+                    } finally {
+                        refilling.remove(productId);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                refilling.remove(productId);
+            }
+        }
+    }
+
+    /**
+     * method to claim leases until the product has leases-per-product leases with items left,
+     * or its stock can't fill a block, then the last items are sold from the product row
+     */
+    private synchronized void fill(int productId) {
+        List<Lease> productLeases = leases.computeIfAbsent(productId, id -> new CopyOnWriteArrayList<>());
+        productLeases.removeIf(lease -> lease.returned);
+        long usable = productLeases.stream().filter(lease -> lease.available.get() > 0).count();
+        for (long i = usable; i < leasesPerProduct && !shutdown && hotProductIds.contains(productId); i++) {
+            Lease lease = claim(productId);
+            if (lease == null) {
+                return;
+            }
+            productLeases.add(lease);
+        }
+    }
+
+    /**
+     * @return -> claimed lease, null if the product has not enough items for a block or doesn't exist
+     */
+    private Lease claim(int productId) {
+        LocalDateTime now = LocalDateTime.now();
+        StockLease claimed = transactionTemplate.execute(status -> {
+            if (productRepository.decrementStock(productId, blockSize) == 0) {
+                return null;
+            }
+            return leaseRepository.save(StockLease.builder()
+                    .productId(productId)
+                    .owner(owner)
+                    .units(blockSize)
+                    .createdDate(now)
+                    .expiresAt(now.plusNanos(TimeUnit.MILLISECONDS.toNanos(timeoutMillis)))
+                    .build());
+        });
+        if (claimed == null) {
+            return null;
+        }
+        sortIndex.adjustStock(productId, -blockSize);
+        metrics.stockLeaseClaimed();
+        return new Lease(claimed.getId(), blockSize);
+    }
+
+    /**
+     * the lease is marked first, so no order takes it up anymore, orders which have taken it already are waited for
+     */
+    private void giveBack(Lease lease) {
+        lease.returned = true;
+        giveBack(lease.id);
+    }
+
+    /**
+     * method to give the units of a lease back to its product and to delete it, does nothing if it's given back already
+     * the lease row is locked first, so an order which has decremented it commits or rolls back before its units are read
+     */
+    private void giveBack(int leaseId) {
+        try {
+            StockLease returned = transactionTemplate.execute(status -> {
+                Optional<StockLease> lease = leaseRepository.findByIdForUpdate(leaseId);
+                if (!lease.isPresent()) {
+                    return null;
+                }
+                leaseRepository.delete(lease.get());
+                if (lease.get().getUnits() > 0) {
+                    productRepository.incrementStock(lease.get().getProductId(), lease.get().getUnits());
+                }
+                return lease.get();
+            });
+            if (returned != null && returned.getUnits() > 0) {
+                sortIndex.adjustStock(returned.getProductId(), returned.getUnits());
+                metrics.stockLeaseReturned();
+            }
+        } catch (DataAccessException | TransactionException e) {
+            // the lease stays and is given back once it expires
+            log.error("Can't give back stock lease {}", leaseId, e);
+        }
+    }
+
+
+    private static final class Lease {
+
+        private final int id;
+        // units of the lease not taken by orders of this node, the lease row counts only committed orders
+        private final AtomicInteger available;
+        private volatile boolean returned;
+
+        private Lease(int id, int units) {
+            this.id = id;
+            this.available = new AtomicInteger(units);
+        }
+
+        private boolean take(int count) {
+            while (true) {
+                int units = available.get();
+                if (returned || units < count) {
+                    return false;
+                }
+                if (available.compareAndSet(units, units - count)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
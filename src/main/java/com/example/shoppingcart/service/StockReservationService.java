@@ -0,0 +1,58 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.exception.StockReservationException;
+import com.example.shoppingcart.metrics.ShoppingCartMetrics;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.search.ProductSortIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Stock Reservation Service
+ * This service class takes items of a product out of stock for an order.
+ * The check and the decrement are done by one conditional update, so parallel orders can't oversell
+ * Items of hot products are reserved from the lease of this node instead, see StockLeaseService
+ */
+@Service
+@RequiredArgsConstructor
+public class StockReservationService {
+
+    private final ProductRepository productRepository;
+    private final ShoppingCartMetrics metrics;
+    private final ProductSortIndex sortIndex;
+    private final StockLeaseService stockLeaseService;
+
+
+    /**
+     * method to reserve items of a product, must be called in the transaction of the order
+     * the count in stock of the sort index is decremented once the transaction commits
+     * items of hot products are reserved from a lease, the product row has already counted them
+     *
+     * @param productId -> product id
+     * @param count     -> count of items to reserve
+     * @throws StockReservationException -> if the product doesn't exist or has not enough items in stock
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(int productId, int count) {
+        if (count < 1) {
+            throw new StockReservationException(productId, count);
+        }
+        if (stockLeaseService.reserve(productId, count)) {
+            return;
+        }
+        if (productRepository.decrementStock(productId, count) == 0) {
+            metrics.stockConflict();
+            throw new StockReservationException(productId, count);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                sortIndex.adjustStock(productId, -count);
+            }
+        });
+    }
+}
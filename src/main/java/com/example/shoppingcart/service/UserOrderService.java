@@ -1,17 +1,31 @@
 package com.example.shoppingcart.service;
 
+import com.example.shoppingcart.config.ReadFromReplica;
+import com.example.shoppingcart.dto.request.CheckoutItemDto;
+import com.example.shoppingcart.dto.response.CheckoutResponseDto;
+import com.example.shoppingcart.dto.response.PageResponseDto;
+import com.example.shoppingcart.dto.response.UserOrderResponseDto;
 import com.example.shoppingcart.entity.OrderStatus;
 import com.example.shoppingcart.entity.Product;
 import com.example.shoppingcart.entity.User;
 import com.example.shoppingcart.entity.UserOrder;
+import com.example.shoppingcart.exception.StockReservationException;
+import com.example.shoppingcart.journal.OrderEvent;
+import com.example.shoppingcart.journal.OrderEventType;
+import com.example.shoppingcart.journal.OrderJournal;
 import com.example.shoppingcart.repository.UserOrderRepository;
 import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.util.CursorUtil;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Function;
 
 /**
  * Order Service
@@ -21,40 +35,120 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class UserOrderService {
 
+    private static final String ID = "id";
+    private static final String INSERT_ORDER = "INSERT INTO user_orders " +
+            "(user_id, product_id, count_of_product, checkout_id, status, created_date) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_CHECKOUT_ORDER_IDS = "SELECT id, product_id FROM user_orders WHERE checkout_id = ?";
+
     private final UserOrderRepository orderRepository;
     private final ProductRepository productRepository;
+    private final StockReservationService stockReservationService;
+    private final JdbcTemplate jdbcTemplate;
+    private final OrderJournal orderJournal;
+    private final SalesAnalyticsService salesAnalyticsService;
 
 
     /**
      * method to save a new order
+     * stock is reserved by StockReservationService in the same transaction as the order insert
+     * the order is journaled and counted by the sales analytics once the transaction commits
      *
      * @param user           -> current customer
-     * @param product        -> product, chosen by current customer
+     * @param productId      -> id of the product, chosen by current customer
      * @param countOfProduct -> count of products in order
-     * @return -> if product exists, creates the order, saves, returns 200 with the order, if not returns 404
+     * @return -> created order
+     * @throws StockReservationException -> if product doesn't exist or count in stock is not enough
      */
-    public UserOrder save(User user, Product product, int countOfProduct) {
+    @Transactional
+    public UserOrder save(User user, int productId, int countOfProduct) {
+        stockReservationService.reserve(productId, countOfProduct);
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new StockReservationException(productId, countOfProduct));
         UserOrder order = UserOrder.builder()
                 .product(product)
                 .user(user)
+                .countOfProduct(countOfProduct)
                 .status(OrderStatus.AWAITING_FOR_PAYMENT)
                 .createdDate(LocalDateTime.now())
                 .build();
-        UserOrder newOrder = orderRepository.save(order);
-        product.setCountInStock(product.getCountInStock() - countOfProduct);
-        productRepository.save(product);
-        return newOrder;
+        UserOrder savedOrder = orderRepository.save(order);
+        orderJournal.appendAfterCommit(OrderEvent.of(OrderEventType.CREATED, savedOrder));
+        salesAnalyticsService.orderChangedAfterCommit(product, countOfProduct, null, OrderStatus.AWAITING_FOR_PAYMENT);
+        return savedOrder;
+    }
+
+
+    /**
+     * method to order several products at once
+     * stock of all products is reserved in one transaction, if any product can't be reserved nothing is ordered
+     * one order per product is written, all in one jdbc batch, sharing the same checkout id
+     * the orders are journaled and counted by the sales analytics once the transaction commits
+     *
+     * @param user  -> current customer
+     * @param items -> products and their counts, chosen by current customer
+     * @return -> checkout with its merged items
+     * @throws StockReservationException -> if any product doesn't exist or count in stock is not enough
+     */
+    @Transactional
+    public CheckoutResponseDto checkout(User user, List<CheckoutItemDto> items) {
+        // merged and sorted by product id, so concurrent checkouts lock product rows in the same order
+        Map<Integer, Integer> countsByProductId = new TreeMap<>();
+        for (CheckoutItemDto item : items) {
+            countsByProductId.merge(item.getProductId(), item.getCount(), Integer::sum);
+        }
+        for (Map.Entry<Integer, Integer> entry : countsByProductId.entrySet()) {
+            stockReservationService.reserve(entry.getKey(), entry.getValue());
+        }
+        String checkoutId = UUID.randomUUID().toString();
+        LocalDateTime createdDate = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>(countsByProductId.size());
+        List<CheckoutItemDto> checkoutItems = new ArrayList<>(countsByProductId.size());
+        for (Map.Entry<Integer, Integer> entry : countsByProductId.entrySet()) {
+            rows.add(new Object[]{user.getId(), entry.getKey(), entry.getValue(), checkoutId,
+                    OrderStatus.AWAITING_FOR_PAYMENT.name(), Timestamp.valueOf(createdDate)});
+            checkoutItems.add(new CheckoutItemDto(entry.getKey(), entry.getValue()));
+        }
+        jdbcTemplate.batchUpdate(INSERT_ORDER, rows);
+        jdbcTemplate.query(SELECT_CHECKOUT_ORDER_IDS, rs -> {
+            int productId = rs.getInt("product_id");
+            orderJournal.appendAfterCommit(OrderEvent.builder()
+                    .type(OrderEventType.CREATED)
+                    .orderId(rs.getInt("id"))
+                    .userId(user.getId())
+                    .productId(productId)
+                    .countOfProduct(countsByProductId.get(productId))
+                    .status(OrderStatus.AWAITING_FOR_PAYMENT)
+                    .checkoutId(checkoutId)
+                    .build());
+        }, checkoutId);
+        for (Map.Entry<Integer, Integer> entry : countsByProductId.entrySet()) {
+            salesAnalyticsService.orderChangedAfterCommit(entry.getKey(), entry.getValue(), null, OrderStatus.AWAITING_FOR_PAYMENT);
+        }
+        return CheckoutResponseDto.builder()
+                .checkoutId(checkoutId)
+                .status(OrderStatus.AWAITING_FOR_PAYMENT)
+                .createdDate(createdDate)
+                .items(checkoutItems)
+                .build();
     }
 
 
     /**
-     * method to find customer orders
+     * method to find a page of customer orders, ordered by id
      *
-     * @param user -> current customer
-     * @return -> list of current customer orders
+     * @param user   -> current customer
+     * @param cursor -> continuation token of the previous page, null for the first page
+     * @param size   -> page size, capped by CursorUtil.MAX_PAGE_SIZE
+     * @return -> page of current customer orders
      */
-    public List<UserOrder> findUserOrders(User user) {
-        return orderRepository.findOrdersByUser_Id(user.getId());
+    @ReadFromReplica
+    public PageResponseDto<UserOrderResponseDto> findUserOrders(User user, String cursor, int size) {
+        CursorUtil.Cursor after = CursorUtil.decode(cursor, ID);
+        int pageSize = CursorUtil.pageSize(size);
+        List<UserOrderResponseDto> orders = orderRepository.findOrderDtosByUserId(
+                user.getId(), after == null ? 0 : after.getLastId(), PageRequest.of(0, pageSize + 1));
+        return CursorUtil.toPage(orders, pageSize,
+                order -> CursorUtil.encode(ID, order.getId(), order.getId()), Function.identity());
     }
 
 
@@ -65,10 +159,15 @@ public class UserOrderService {
      * @param newStatus -> new status, chosen by ADMIN
      * @return if ok, returns 200, if not returns 404;
      */
+    @Transactional
     public UserOrder changeStatus(UserOrder order, String newStatus) {
+        OrderStatus oldStatus = order.getStatus();
         order.setStatus(OrderStatus.valueOf(newStatus));
-        return orderRepository.save(order);
-
+        UserOrder savedOrder = orderRepository.save(order);
+        orderJournal.appendAfterCommit(OrderEvent.of(OrderEventType.STATUS_CHANGED, savedOrder));
+        salesAnalyticsService.orderChangedAfterCommit(savedOrder.getProduct().getId(), savedOrder.getCountOfProduct(),
+                oldStatus, savedOrder.getStatus());
+        return savedOrder;
     }
 
 
@@ -77,8 +176,11 @@ public class UserOrderService {
      *
      * @param order -> order that will be deleted
      */
+    @Transactional
     public void delete(UserOrder order) {
         orderRepository.delete(order);
+        orderJournal.appendAfterCommit(OrderEvent.of(OrderEventType.DELETED, order));
+        salesAnalyticsService.orderChangedAfterCommit(order.getProduct().getId(), order.getCountOfProduct(), order.getStatus(), null);
     }
 
 
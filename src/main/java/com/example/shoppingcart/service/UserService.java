@@ -4,11 +4,11 @@ import com.example.shoppingcart.dto.request.CreateUserRequestDto;
 import com.example.shoppingcart.dto.response.UserResponseDto;
 import com.example.shoppingcart.entity.User;
 import com.example.shoppingcart.entity.UserType;
+import com.example.shoppingcart.mapper.UserMapper;
 import com.example.shoppingcart.repository.UserRepository;
+import com.example.shoppingcart.security.PrincipalCache;
 import com.example.shoppingcart.util.JwtTokenUtil;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.text.ParseException;
@@ -25,9 +25,10 @@ import java.util.Optional;
 public class UserService {
 
     private final UserRepository userRepository;
-    private final ModelMapper modelMapper;
-    private final PasswordEncoder passwordEncoder;
+    private final UserMapper userMapper;
+    private final PasswordHashingService passwordHashingService;
     private final JwtTokenUtil jwtTokenUtil;
+    private final PrincipalCache principalCache;
     private final SimpleDateFormat sdf = new SimpleDateFormat("dd.MM.yyyy");
 
 
@@ -38,6 +39,7 @@ public class UserService {
      *                             saves the new user as customer
      *                             generates a jw token for the customer
      * @return -> if email exists, returns 409, if did save returns UserResponseDto
+     * @throws com.example.shoppingcart.exception.PasswordHashingRejectedException -> if password hashing is saturated
      */
     public UserResponseDto save(CreateUserRequestDto createUserRequestDto) throws ParseException {
         User user = User.builder()
@@ -47,9 +49,9 @@ public class UserService {
                 .birthday(sdf.parse(createUserRequestDto.getBirthday()))
                 .build();
         user.setType(UserType.CUSTOMER);
-        user.setPassword(passwordEncoder.encode(createUserRequestDto.getPassword()));
+        user.setPassword(passwordHashingService.encode(createUserRequestDto.getPassword()));
         userRepository.save(user);
-        UserResponseDto userResponseDto = modelMapper.map(user, UserResponseDto.class);
+        UserResponseDto userResponseDto = userMapper.toDto(user);
         userResponseDto.setToken(jwtTokenUtil.generateToken(userResponseDto.getEmail()));
         return userResponseDto;
 
@@ -72,6 +74,33 @@ public class UserService {
                 .build();
     }
 
+    /**
+     * method to change the password of a user
+     * cached principals of the user are evicted, so its tokens are authenticated against the new password
+     *
+     * @param user        -> user whose password changes
+     * @param rawPassword -> new password
+     * @throws com.example.shoppingcart.exception.PasswordHashingRejectedException -> if password hashing is saturated
+     */
+    public void changePassword(User user, String rawPassword) {
+        user.setPassword(passwordHashingService.encode(rawPassword));
+        userRepository.save(user);
+        principalCache.evictUser(user.getEmail());
+    }
+
+    /**
+     * method to change the type of a user, e.g. to grant or revoke admin rights
+     * cached principals of the user are evicted, so its tokens get the new authorities
+     *
+     * @param user -> user whose type changes
+     * @param type -> new type
+     */
+    public void changeType(User user, UserType type) {
+        user.setType(type);
+        userRepository.save(user);
+        principalCache.evictUser(user.getEmail());
+    }
+
     public Optional<User> findByEmail(String email) {
         return userRepository.findByEmail(email);
     }
@@ -0,0 +1,131 @@
+package com.example.shoppingcart.util;
+
+import com.example.shoppingcart.dto.response.PageResponseDto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Continuation tokens of keyset pagination
+ * A token holds the sort key, the sort value and the id of the last item of a page, encoded as
+ * opaque url safe base64, the next page starts right after that item
+ */
+public final class CursorUtil {
+
+    // String, so endpoints can use it as default value of a request parameter
+    public static final String DEFAULT_PAGE_SIZE = "20";
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final String SEPARATOR = "|";
+
+    private CursorUtil() {
+    }
+
+
+    /**
+     * @param requestedSize -> page size requested by client
+     * @return -> page size between 1 and MAX_PAGE_SIZE
+     */
+    public static int pageSize(int requestedSize) {
+        return Math.max(1, Math.min(requestedSize, MAX_PAGE_SIZE));
+    }
+
+
+    /**
+     * builds a page from the rows of a keyset query, which has been asked for pageSize + 1 rows
+     *
+     * @param rows     -> fetched rows, one more than pageSize if there is a next page
+     * @param pageSize -> page size
+     * @param cursorOf -> continuation token of a row
+     * @param mapper   -> maps a row to a page item
+     * @return -> page with the continuation token of its last row, if there is a next page
+     */
+    public static <T, R> PageResponseDto<R> toPage(List<T> rows, int pageSize,
+                                                   Function<T, String> cursorOf, Function<T, R> mapper) {
+        boolean hasNext = rows.size() > pageSize;
+        List<T> pageRows = hasNext ? rows.subList(0, pageSize) : rows;
+        return PageResponseDto.<R>builder()
+                .items(pageRows.stream().map(mapper).collect(Collectors.toList()))
+                .nextCursor(hasNext ? cursorOf.apply(pageRows.get(pageSize - 1)) : null)
+                .build();
+    }
+
+
+    /**
+     * @param sortKey -> name of the sorted property, "id" for pages ordered by id only
+     * @param value   -> value of the sorted property of the last item (String, Number or Date)
+     * @param lastId  -> id of the last item
+     * @return -> continuation token
+     */
+    public static String encode(String sortKey, Object value, int lastId) {
+        String encodedValue = value instanceof Date ? String.valueOf(((Date) value).getTime()) : String.valueOf(value);
+        String cursor = sortKey + SEPARATOR + lastId + SEPARATOR + encodedValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * @param cursor  -> continuation token, null for the first page
+     * @param sortKey -> name of the sorted property the token must belong to
+     * @return -> decoded token, null for the first page
+     * @throws IllegalArgumentException -> if the token is malformed or belongs to another sort key
+     */
+    public static Cursor decode(String cursor, String sortKey) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\\" + SEPARATOR, 3);
+            if (parts.length != 3 || !parts[0].equals(sortKey)) {
+                throw new IllegalArgumentException("Cursor doesn't belong to sorting by " + sortKey);
+            }
+            return new Cursor(Integer.parseInt(parts[1]), parts[2]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * decoded continuation token
+     */
+    public static final class Cursor {
+
+        private final int lastId;
+        private final String value;
+
+        private Cursor(int lastId, String value) {
+            this.lastId = lastId;
+            this.value = value;
+        }
+
+        public int getLastId() {
+            return lastId;
+        }
+
+        /**
+         * @param type -> type of the sorted property
+         * @return -> value of the sorted property of the last item, converted to the type
+         */
+        public Object getValue(Class<?> type) {
+            if (type == String.class) {
+                return value;
+            }
+            if (type == double.class || type == Double.class) {
+                return Double.valueOf(value);
+            }
+            if (type == int.class || type == Integer.class) {
+                return Integer.valueOf(value);
+            }
+            if (Date.class.isAssignableFrom(type)) {
+                return new Date(Long.parseLong(value));
+            }
+            throw new IllegalArgumentException("Unsupported cursor value type " + type.getSimpleName());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.shoppingcart.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads (Java 21+) from code compiled for Java 8, through reflection
+ */
+public final class VirtualThreads {
+
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findFactoryMethod();
+
+    private VirtualThreads() {
+    }
+
+
+    /**
+     * @return -> true if the running JVM has virtual threads
+     */
+    public static boolean isSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+
+    /**
+     * @return -> executor starting a new virtual thread for every task
+     * @throws UnsupportedOperationException -> if the running JVM has no virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or later, running on " +
+                    System.getProperty("java.version"));
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Couldn't create a virtual thread executor", e);
+        }
+    }
+
+
+    private static Method findFactoryMethod() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            // on Java 19 and 20 virtual threads are a preview feature and fail unless --enable-preview is set
+            ((ExecutorService) method.invoke(null)).shutdown();
+            return method;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
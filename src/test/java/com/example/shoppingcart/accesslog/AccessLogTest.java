@@ -0,0 +1,101 @@
+package com.example.shoppingcart.accesslog;
+
+import com.example.shoppingcart.config.AccessLogProperties;
+import com.example.shoppingcart.metrics.ShoppingCartMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void log_One_Json_Line_Per_Request_With_Sampling() throws Exception {
+        AccessLogProperties.Sampling sampling = new AccessLogProperties.Sampling();
+        sampling.setMethod("GET");
+        sampling.setPath("/product/**");
+        sampling.setRate(0);
+        AccessLogProperties properties = new AccessLogProperties();
+        properties.setFile(directory.resolve("access.log").toString());
+        properties.setSampling(Collections.singletonList(sampling));
+        AccessLog accessLog = new AccessLog(properties, new ShoppingCartMetrics(new SimpleMeterRegistry()));
+
+        accessLog.log("GET", "/product/view", 200, 150, "a@gmail.com", "10.0.0.1");
+        accessLog.log("GET", "/product/type", 404, 120, "a@gmail.com", "10.0.0.1");
+        accessLog.log("POST", "/order/", 201, 3000, null, "10.0.0.2");
+        accessLog.shutdown();
+
+        List<String> lines = Files.readAllLines(directory.resolve("access.log"), StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"method\":\"GET\",\"path\":\"/product/type\",\"status\":404,\"micros\":120,\"user\":\"a@gmail.com\""));
+        assertTrue(lines.get(1).endsWith("\"status\":201,\"micros\":3000,\"user\":null,\"client\":\"10.0.0.2\"}"));
+    }
+
+    @Test
+    void offer_When_Buffer_Is_Full() {
+        AccessLogRingBuffer buffer = new AccessLogRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(record(i)));
+        }
+        assertFalse(buffer.offer(record(4)));
+
+        List<AccessLogRecord> drained = new ArrayList<>();
+        assertEquals(2, buffer.drain(drained::add, 2));
+        assertTrue(buffer.offer(record(4)));
+        assertEquals(3, buffer.drain(drained::add, 10));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, drained.get(i).getStatus());
+        }
+    }
+
+    @Test
+    void offer_From_Many_Threads() throws Exception {
+        int threads = 4;
+        int recordsPerThread = 10_000;
+        AccessLogRingBuffer buffer = new AccessLogRingBuffer(threads * recordsPerThread);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < recordsPerThread; i++) {
+                    buffer.offer(record(i));
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        int[] counts = new int[recordsPerThread];
+        assertEquals(threads * recordsPerThread, buffer.drain(record -> counts[record.getStatus()]++, Integer.MAX_VALUE));
+        for (int count : counts) {
+            assertEquals(threads, count);
+        }
+    }
+
+
+    private static AccessLogRecord record(int status) {
+        return new AccessLogRecord(System.currentTimeMillis(), "GET", "/product/view", status, 1, null, "127.0.0.1");
+    }
+}
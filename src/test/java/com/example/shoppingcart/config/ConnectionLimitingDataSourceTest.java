@@ -0,0 +1,38 @@
+package com.example.shoppingcart.config;
+
+import org.h2.Driver;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionLimitingDataSourceTest {
+
+    private final ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(
+            new SimpleDriverDataSource(new Driver(), "jdbc:h2:mem:connectionLimitTest", "sa", ""), 1, 50);
+
+
+    @Test
+    void getConnection_Waits_For_A_Closed_Connection() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        connection.close();
+        try (Connection next = dataSource.getConnection()) {
+            assertTrue(next.isValid(1));
+        }
+    }
+
+    @Test
+    void closing_A_Connection_Twice_Gives_One_Permit_Back() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        connection.close();
+        connection.close();
+        Connection next = dataSource.getConnection();
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        next.close();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.shoppingcart.config;
+
+import org.h2.Driver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final DataSource primary = database("routingPrimary");
+    private final DataSource firstReplica = database("routingFirstReplica");
+    private final DataSource secondReplica = database("routingSecondReplica");
+
+
+    @AfterEach
+    void afterEach() {
+        SecurityContextHolder.clearContext();
+    }
+
+
+    @Test
+    void replica_Reads_Are_Spread_Round_Robin_And_Other_Queries_Use_The_Primary() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(routing(firstReplica, secondReplica));
+
+        assertEquals("routingPrimary", node(jdbcTemplate));
+        Set<String> replicaNodes = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            replicaNodes.add(ReplicaRoutingDataSource.readFromReplica(() -> node(jdbcTemplate)));
+        }
+        assertEquals(new HashSet<>(Arrays.asList("routingFirstReplica", "routingSecondReplica")), replicaNodes);
+    }
+
+    @Test
+    void read_Inside_A_Read_Write_Transaction_Uses_The_Primary() {
+        ReplicaRoutingDataSource dataSource = routing(firstReplica);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        assertEquals("routingPrimary", transactionTemplate.execute(status ->
+                ReplicaRoutingDataSource.readFromReplica(() -> node(jdbcTemplate))));
+        transactionTemplate.setReadOnly(true);
+        assertEquals("routingFirstReplica", ReplicaRoutingDataSource.readFromReplica(() ->
+                transactionTemplate.execute(status -> node(jdbcTemplate))));
+    }
+
+    @Test
+    void unhealthy_Replica_Is_Skipped_Until_It_Is_Valid_Again() {
+        DataSource missingReplica = new SimpleDriverDataSource(new Driver(), "jdbc:h2:mem:routingMissing;IFEXISTS=TRUE", "sa", "");
+        ReplicaRoutingDataSource dataSource = routing(missingReplica, firstReplica);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        assertEquals("routingPrimary", ReplicaRoutingDataSource.readFromReplica(() -> node(jdbcTemplate)));
+        assertFalse(dataSource.isHealthy(0));
+        for (int i = 0; i < 4; i++) {
+            assertEquals("routingFirstReplica", ReplicaRoutingDataSource.readFromReplica(() -> node(jdbcTemplate)));
+        }
+        dataSource.checkReplicas();
+        assertFalse(dataSource.isHealthy(0));
+        assertTrue(dataSource.isHealthy(1));
+    }
+
+    @Test
+    void user_Reads_Own_Writes_From_The_Primary() {
+        ReplicaRoutingDataSource dataSource = routing(firstReplica);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("writer@gmail.com", null));
+
+        assertEquals("routingFirstReplica", ReplicaRoutingDataSource.readFromReplica(() -> node(jdbcTemplate)));
+        dataSource.recordWrite("writer@gmail.com");
+        assertEquals("routingPrimary", ReplicaRoutingDataSource.readFromReplica(() -> node(jdbcTemplate)));
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("reader@gmail.com", null));
+        assertEquals("routingFirstReplica", ReplicaRoutingDataSource.readFromReplica(() -> node(jdbcTemplate)));
+    }
+
+    @Test
+    void annotated_Methods_Read_From_The_Replica() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(routing(firstReplica));
+        ProxyFactory proxyFactory = new ProxyFactory(new NodeReader(jdbcTemplate));
+        proxyFactory.addAdvisor(ReplicaDataSourceConfig.readFromReplicaAdvisor());
+        proxyFactory.setProxyTargetClass(true);
+        NodeReader nodeReader = (NodeReader) proxyFactory.getProxy();
+
+        assertEquals("routingFirstReplica", nodeReader.fromReplica());
+        assertEquals("routingPrimary", nodeReader.fromPrimary());
+    }
+
+
+    public static class NodeReader {
+
+        private final JdbcTemplate jdbcTemplate;
+
+        public NodeReader(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @ReadFromReplica
+        public String fromReplica() {
+            return node(jdbcTemplate);
+        }
+
+        public String fromPrimary() {
+            return node(jdbcTemplate);
+        }
+    }
+
+
+    private ReplicaRoutingDataSource routing(DataSource... replicas) {
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, Arrays.asList(replicas), 60000, 1);
+        dataSource.afterPropertiesSet();
+        return dataSource;
+    }
+
+    private static String node(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    /**
+     * each embedded database knows its own name, so a query tells where it was run
+     */
+    private static DataSource database(String name) {
+        DataSource dataSource = new SimpleDriverDataSource(new Driver(), "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(64))");
+        jdbcTemplate.update("DELETE FROM node");
+        jdbcTemplate.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+}
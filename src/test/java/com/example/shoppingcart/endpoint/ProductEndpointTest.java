@@ -1,5 +1,8 @@
 package com.example.shoppingcart.endpoint;
 
+import com.example.shoppingcart.entity.User;
+import com.example.shoppingcart.entity.UserType;
+import com.example.shoppingcart.security.CurrentUser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.junit.jupiter.api.Test;
@@ -8,9 +11,24 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -73,4 +91,75 @@ class ProductEndpointTest {
                 .andExpect(status().isForbidden());
     }
 
-}
\ No newline at end of file
+    @WithMockUser(authorities = "CUSTOMER")
+    @Test
+    void exportProducts_As_Gzipped_Csv() throws Exception {
+        MvcResult result = mockMvc.perform(get("http://localhost:8080/product/export?format=csv&gzip=true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"products.csv.gz\""))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(body)), StandardCharsets.UTF_8))) {
+            assertEquals("id,name,description,type,price,countInStock,createdDate,updatedDate", reader.readLine());
+        }
+    }
+
+    @WithMockUser(authorities = "CUSTOMER")
+    @Test
+    void exportProducts_When_Format_Is_Unknown() throws Exception {
+        mockMvc.perform(get("http://localhost:8080/product/export?format=xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @WithMockUser(username = "ratelimited@gmail.com", authorities = "CUSTOMER")
+    @Test
+    void exportProducts_When_Rate_Limit_Is_Exceeded() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("http://localhost:8080/product/export?format=xml"))
+                    .andExpect(status().isBadRequest());
+        }
+        mockMvc.perform(get("http://localhost:8080/product/export?format=xml"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"));
+    }
+
+    @WithMockUser(authorities = "ADMIN")
+    @Test
+    void viewProducts_When_Catalog_Is_Not_Modified() throws Exception {
+        CurrentUser customer = new CurrentUser(User.builder()
+                .email("etag@gmail.com")
+                .password("12345678")
+                .type(UserType.CUSTOMER)
+                .build());
+        String etag = mockMvc.perform(get("http://localhost:8080/product/view").with(user(customer)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+
+        mockMvc.perform(get("http://localhost:8080/product/view").with(user(customer))
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+
+        ObjectNode saveProductRequest = new ObjectMapper().createObjectNode();
+        saveProductRequest.put("name", "scarf");
+        saveProductRequest.put("description", "warm scarf");
+        saveProductRequest.put("type", "CLOTHING");
+        saveProductRequest.put("price", "3000");
+        saveProductRequest.put("countInStock", "10");
+        saveProductRequest.put("createdDate", "04.04.2020");
+        mockMvc.perform(post("http://localhost:8080/product/")
+                        .contentType(APPLICATION_JSON)
+                        .content(saveProductRequest.toString()))
+                .andExpect(status().isCreated());
+
+        String changedEtag = mockMvc.perform(get("http://localhost:8080/product/view").with(user(customer))
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(etag, changedEtag);
+    }
+}
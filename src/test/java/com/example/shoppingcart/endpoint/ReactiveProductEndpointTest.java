@@ -0,0 +1,131 @@
+package com.example.shoppingcart.endpoint;
+
+import com.example.shoppingcart.entity.Product;
+import com.example.shoppingcart.entity.ProductType;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.search.ProductSearchIndex;
+import com.example.shoppingcart.util.CursorUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReactiveProductEndpointTest {
+
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @WithMockUser(authorities = "CUSTOMER")
+    @Test
+    void search_Streams_Matching_Products() throws Exception {
+        Product product = productRepository.save(Product.builder()
+                .name("reactivewindbreaker")
+                .description("light jacket")
+                .type(ProductType.CLOTHING)
+                .price(40)
+                .countInStock(3)
+                .createdDate(new Date())
+                .updatedDate(LocalDate.now())
+                .build());
+        searchIndex.index(product);
+
+        String[] lines = stream("http://localhost:8080/reactive/product/search?q=reactivewindbreaker");
+
+        assertEquals(1, lines.length);
+        JsonNode found = new ObjectMapper().readTree(lines[0]);
+        assertEquals(product.getId(), found.get("id").asInt());
+        assertEquals("CLOTHING", found.get("type").asText());
+        assertEquals(3, found.get("countInStock").asInt());
+    }
+
+    @WithMockUser(authorities = "CUSTOMER")
+    @Test
+    void view_Streams_At_Most_Limit_Products() throws Exception {
+        productRepository.save(Product.builder()
+                .name("reactive scarf")
+                .description("wool scarf")
+                .type(ProductType.CLOTHING)
+                .price(10)
+                .countInStock(5)
+                .createdDate(new Date())
+                .updatedDate(LocalDate.now())
+                .build());
+
+        assertEquals(1, stream("http://localhost:8080/reactive/product/view?limit=1").length);
+    }
+
+    @WithMockUser(authorities = "CUSTOMER")
+    @Test
+    void view_Caps_Limit() throws Exception {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i <= CursorUtil.MAX_PAGE_SIZE; i++) {
+            products.add(Product.builder()
+                    .name("reactive sock")
+                    .description("cotton sock")
+                    .type(ProductType.CLOTHING)
+                    .price(2)
+                    .countInStock(50)
+                    .createdDate(new Date())
+                    .build());
+        }
+        productRepository.saveAll(products);
+        try {
+            assertEquals(CursorUtil.MAX_PAGE_SIZE, stream("http://localhost:8080/reactive/product/view?limit=100000").length);
+            assertEquals(CursorUtil.MAX_PAGE_SIZE, stream("http://localhost:8080/reactive/product/view").length);
+        } finally {
+            // other tests count all products
+            productRepository.deleteAll(products);
+        }
+    }
+
+    @WithMockUser(authorities = "CUSTOMER")
+    @Test
+    void view_When_Limit_Is_Not_Positive() throws Exception {
+        mockMvc.perform(get("http://localhost:8080/reactive/product/view?limit=0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @WithMockUser(authorities = "CUSTOMER")
+    @Test
+    void sort_When_Direction_Is_Wrong() throws Exception {
+        mockMvc.perform(get("http://localhost:8080/reactive/product/sort?t=CLOTHING&s=price&d=up"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String[] stream(String url) throws Exception {
+        MvcResult result = mockMvc.perform(get(url).accept(APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString().split("\n");
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.shoppingcart.journal;
+
+import com.example.shoppingcart.entity.OrderStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderJournalTest {
+
+    // room for about three events per segment
+    private static final int SEGMENT_SIZE = 256;
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void events_Get_Gapless_Sequences_And_Are_Read_Back() throws Exception {
+        OrderJournal journal = new OrderJournal(directory.toString(), SEGMENT_SIZE);
+        journal.append(event(1, OrderEventType.CREATED, "checkout-1"));
+        journal.append(event(1, OrderEventType.STATUS_CHANGED, null));
+
+        List<OrderEvent> events = journal.reader(1).poll(10);
+
+        assertEquals(2, events.size());
+        assertEquals(1, events.get(0).getSequence());
+        assertEquals(OrderEventType.CREATED, events.get(0).getType());
+        assertEquals("checkout-1", events.get(0).getCheckoutId());
+        assertEquals(2, events.get(1).getSequence());
+        assertNull(events.get(1).getCheckoutId());
+        assertEquals(OrderStatus.DELIVERED, events.get(1).getStatus());
+        journal.shutdown();
+    }
+
+    @Test
+    void replay_From_Offset_Crosses_Segments() throws Exception {
+        OrderJournal journal = new OrderJournal(directory.toString(), SEGMENT_SIZE);
+        for (int orderId = 1; orderId <= 10; orderId++) {
+            journal.append(event(orderId, OrderEventType.CREATED, "checkout-" + orderId));
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.count() > 2);
+        }
+
+        OrderJournal.Reader reader = journal.reader(4);
+        List<OrderEvent> events = reader.poll(100);
+
+        assertEquals(7, events.size());
+        assertEquals(4, events.get(0).getSequence());
+        assertEquals(4, events.get(0).getOrderId());
+        assertEquals(10, events.get(6).getOrderId());
+        assertEquals(11, reader.nextSequence());
+        assertTrue(reader.poll(100).isEmpty());
+        journal.shutdown();
+    }
+
+    @Test
+    void reopened_Journal_Continues_The_Sequence() throws Exception {
+        OrderJournal journal = new OrderJournal(directory.toString(), SEGMENT_SIZE);
+        for (int orderId = 1; orderId <= 4; orderId++) {
+            journal.append(event(orderId, OrderEventType.CREATED, null));
+        }
+        journal.shutdown();
+
+        OrderJournal reopened = new OrderJournal(directory.toString(), SEGMENT_SIZE);
+        assertEquals(4, reopened.lastSequence());
+        assertEquals(5, reopened.append(event(5, OrderEventType.CREATED, null)).getSequence());
+        List<OrderEvent> events = reopened.reader(1).poll(100);
+        assertEquals(5, events.size());
+        assertEquals(5, events.get(4).getOrderId());
+        reopened.shutdown();
+    }
+
+    @Test
+    void tailing_Reader_Is_Woken_By_Append() throws Exception {
+        OrderJournal journal = new OrderJournal(directory.toString(), SEGMENT_SIZE);
+        OrderJournal.Reader reader = journal.reader(1);
+        CompletableFuture<List<OrderEvent>> tail = CompletableFuture.supplyAsync(() -> {
+            try {
+                return reader.poll(10, 10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        journal.append(event(7, OrderEventType.DELETED, null));
+
+        List<OrderEvent> events = tail.get(10, TimeUnit.SECONDS);
+        assertEquals(1, events.size());
+        assertEquals(7, events.get(0).getOrderId());
+        journal.shutdown();
+    }
+
+    private static OrderEvent event(int orderId, OrderEventType type, String checkoutId) {
+        return OrderEvent.builder()
+                .type(type)
+                .orderId(orderId)
+                .userId(2)
+                .productId(3)
+                .countOfProduct(4)
+                .status(type == OrderEventType.CREATED ? OrderStatus.AWAITING_FOR_PAYMENT : OrderStatus.DELIVERED)
+                .checkoutId(checkoutId)
+                .build();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.shoppingcart.mapper;
+
+import com.example.shoppingcart.dto.response.ProductResponseDto;
+import com.example.shoppingcart.entity.Product;
+import com.example.shoppingcart.entity.ProductType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ProductMapper must produce the same dtos ModelMapper used to produce
+ */
+class ProductMapperTest {
+
+    private final ProductMapper productMapper = new ProductMapper();
+    private final ModelMapper modelMapper = new ModelMapper();
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void toDto_Equals_ModelMapper_For_Filled_Product() throws JsonProcessingException {
+        for (ProductType type : ProductType.values()) {
+            assertEquivalent(Product.builder()
+                    .id(42)
+                    .name("telephone")
+                    .description("very good telephone")
+                    .type(type)
+                    .price(15000.5)
+                    .countInStock(10)
+                    .createdDate(new Date(1586000000000L))
+                    .updatedDate(LocalDate.of(2022, 5, 1))
+                    .build());
+        }
+    }
+
+    @Test
+    void toDto_Equals_ModelMapper_For_Empty_Product() throws JsonProcessingException {
+        assertEquivalent(new Product());
+    }
+
+    @Test
+    void toDto_Of_Null_Is_Null() {
+        assertNull(productMapper.toDto(null));
+    }
+
+    private void assertEquivalent(Product product) throws JsonProcessingException {
+        ProductResponseDto expected = modelMapper.map(product, ProductResponseDto.class);
+        ProductResponseDto actual = productMapper.toDto(product);
+        assertEquals(objectMapper.writeValueAsString(expected), objectMapper.writeValueAsString(actual));
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.shoppingcart.mapper;
+
+import com.example.shoppingcart.dto.response.UserResponseDto;
+import com.example.shoppingcart.entity.User;
+import com.example.shoppingcart.entity.UserType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UserMapper must produce the same dtos ModelMapper used to produce
+ */
+class UserMapperTest {
+
+    private final UserMapper userMapper = new UserMapper();
+    private final ModelMapper modelMapper = new ModelMapper();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void toDto_Equals_ModelMapper_For_Filled_User() throws JsonProcessingException {
+        for (UserType type : UserType.values()) {
+            assertEquivalent(User.builder()
+                    .id(1)
+                    .name("John")
+                    .surname("Lennon")
+                    .email("lennon@gmail.com")
+                    .password("$2a$10$hash")
+                    .birthday(new Date(765000000000L))
+                    .type(type)
+                    .build());
+        }
+    }
+
+    @Test
+    void toDto_Equals_ModelMapper_For_Empty_User() throws JsonProcessingException {
+        assertEquivalent(new User());
+    }
+
+    @Test
+    void toDto_Of_Null_Is_Null() {
+        assertNull(userMapper.toDto(null));
+    }
+
+    private void assertEquivalent(User user) throws JsonProcessingException {
+        UserResponseDto expected = modelMapper.map(user, UserResponseDto.class);
+        UserResponseDto actual = userMapper.toDto(user);
+        assertEquals(objectMapper.writeValueAsString(expected), objectMapper.writeValueAsString(actual));
+    }
+}
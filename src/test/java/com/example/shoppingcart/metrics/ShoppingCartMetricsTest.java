@@ -0,0 +1,51 @@
+package com.example.shoppingcart.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+class ShoppingCartMetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ShoppingCartMetrics metrics;
+
+
+    @Test
+    void prometheus_Exposes_Latency_Percentiles_And_Business_Metrics() throws Exception {
+        metrics.orderRejected();
+        metrics.stockConflict();
+        mockMvc.perform(get("http://localhost:8080/product/view"))
+                .andExpect(status().isUnauthorized());
+
+        mockMvc.perform(get("http://localhost:8080/actuator/prometheus")
+                        .with(user("admin@gmail.com").authorities(new SimpleGrantedAuthority("ADMIN"))))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds{")))
+                .andExpect(content().string(containsString("quantile=\"0.999\"")))
+                .andExpect(content().string(containsString("spring_data_repository_invocations_seconds{")))
+                .andExpect(content().string(containsString("auth_filter_seconds_count{principal=\"none\",}")))
+                .andExpect(content().string(containsString("orders_total{kind=\"single\",outcome=\"rejected\",}")))
+                .andExpect(content().string(containsString("stock_conflicts_total")));
+    }
+
+    @Test
+    void prometheus_Is_Not_Exposed_To_Anonymous_Clients() throws Exception {
+        mockMvc.perform(get("http://localhost:8080/actuator/prometheus"))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.shoppingcart.search;
+
+import com.example.shoppingcart.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex searchIndex;
+
+    @BeforeEach
+    void beforeEach() {
+        searchIndex = new ProductSearchIndex();
+        searchIndex.rebuild(Arrays.asList(
+                product(1, "telephone", "very good telephone"),
+                product(2, "television", "big screen for the living room"),
+                product(3, "chair", "wooden chair, good for the kitchen")));
+    }
+
+    @Test
+    void search_By_Prefix() {
+        assertEquals(Arrays.asList(1, 2), searchIndex.search("tel"));
+        assertEquals(Collections.singletonList(3), searchIndex.search("KITCH"));
+        assertTrue(searchIndex.search("bla").isEmpty());
+    }
+
+    @Test
+    void search_All_Terms_Must_Match() {
+        assertEquals(Arrays.asList(1, 3), searchIndex.search("good"));
+        assertEquals(Collections.singletonList(3), searchIndex.search("good chair"));
+        assertEquals(Collections.singletonList(1), searchIndex.search("good tel"));
+        assertTrue(searchIndex.search("good screen").isEmpty());
+    }
+
+    @Test
+    void search_Orders_By_Relevance() {
+        searchIndex.index(product(4, "lamp", "a telephone shaped lamp"));
+        assertEquals(Arrays.asList(1, 4), searchIndex.search("telephone"));
+    }
+
+    @Test
+    void search_Returns_Most_Relevant_Up_To_Limit() {
+        searchIndex.index(product(4, "lamp", "a telephone shaped lamp"));
+        assertEquals(Arrays.asList(1, 2, 4), searchIndex.search("tel"));
+        assertEquals(Arrays.asList(1, 2), searchIndex.search("tel", 2));
+        assertEquals(Collections.singletonList(1), searchIndex.search("tel", 1));
+    }
+
+    @Test
+    void index_And_Remove_Keep_Index_Up_To_Date() {
+        searchIndex.index(product(2, "radio", "old radio"));
+        assertEquals(Collections.singletonList(1), searchIndex.search("tel"));
+        assertEquals(Collections.singletonList(2), searchIndex.search("radio"));
+        searchIndex.remove(1);
+        assertTrue(searchIndex.search("tel").isEmpty());
+    }
+
+    private Product product(int id, String name, String description) {
+        return Product.builder()
+                .id(id)
+                .name(name)
+                .description(description)
+                .build();
+    }
+}
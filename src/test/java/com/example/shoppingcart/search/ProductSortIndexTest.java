@@ -0,0 +1,106 @@
+package com.example.shoppingcart.search;
+
+import com.example.shoppingcart.entity.Product;
+import com.example.shoppingcart.entity.ProductSortKey;
+import com.example.shoppingcart.entity.ProductType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSortIndexTest {
+
+    private ProductSortIndex sortIndex;
+
+    @BeforeEach
+    void beforeEach() {
+        sortIndex = new ProductSortIndex();
+        sortIndex.rebuild(Arrays.asList(
+                product(1, "telephone", ProductType.ELECTRONICS, 300, 3),
+                product(2, "Radio", ProductType.ELECTRONICS, 100, 1),
+                product(3, "chair", ProductType.HOUSEHOLD, 50, 2),
+                product(4, "laptop", ProductType.ELECTRONICS, 300, 2),
+                product(5, "camera", ProductType.ELECTRONICS, 100, 5)));
+    }
+
+    @Test
+    void page_Orders_By_Sort_Key_Then_By_Id() {
+        assertEquals(Arrays.asList(2, 5, 1, 4), ids(sortIndex.page(ProductType.ELECTRONICS, ProductSortKey.PRICE, true, null, 0, 10)));
+        assertEquals(Arrays.asList(4, 1, 5, 2), ids(sortIndex.page(ProductType.ELECTRONICS, ProductSortKey.PRICE, false, null, 0, 10)));
+        assertEquals(Arrays.asList(5, 4, 2, 1), ids(sortIndex.page(ProductType.ELECTRONICS, ProductSortKey.NAME, true, null, 0, 10)));
+        assertTrue(sortIndex.page(ProductType.CARE, ProductSortKey.NAME, true, null, 0, 10).isEmpty());
+    }
+
+    @Test
+    void page_Continues_After_The_Cursor_Product() {
+        assertEquals(Arrays.asList(1, 4), ids(sortIndex.page(ProductType.ELECTRONICS, ProductSortKey.PRICE, true, 100.0, 5, 10)));
+        assertEquals(Arrays.asList(5, 2), ids(sortIndex.page(ProductType.ELECTRONICS, ProductSortKey.PRICE, false, 300.0, 1, 10)));
+        assertEquals(Collections.singletonList(1), ids(sortIndex.page(ProductType.ELECTRONICS, ProductSortKey.PRICE, true, 100.0, 5, 1)));
+        // the cursor product has been removed since, the page starts where it was
+        sortIndex.remove(5);
+        assertEquals(Arrays.asList(1, 4), ids(sortIndex.page(ProductType.ELECTRONICS, ProductSortKey.PRICE, true, 100.0, 5, 10)));
+        assertEquals(Collections.singletonList(2), ids(sortIndex.page(ProductType.ELECTRONICS, ProductSortKey.PRICE, false, 100.0, 5, 10)));
+    }
+
+    @Test
+    void index_And_Remove_Keep_Every_Array_Sorted() {
+        sortIndex.index(product(6, "kettle", ProductType.ELECTRONICS, 200, 1));
+        sortIndex.index(product(2, "radio", ProductType.HOUSEHOLD, 20, 1));
+        sortIndex.remove(1);
+        sortIndex.remove(42);
+        assertEquals(Arrays.asList(5, 6, 4), ids(sortIndex.page(ProductType.ELECTRONICS, ProductSortKey.PRICE, true, null, 0, 10)));
+        assertEquals(Arrays.asList(5, 6, 4), ids(sortIndex.page(ProductType.ELECTRONICS, ProductSortKey.NAME, true, null, 0, 10)));
+        assertEquals(Arrays.asList(2, 3), ids(sortIndex.page(ProductType.HOUSEHOLD, ProductSortKey.PRICE, true, null, 0, 10)));
+    }
+
+    @Test
+    void pages_Match_A_Full_Sort() {
+        Random random = new Random(7);
+        List<Product> products = new ArrayList<>();
+        for (int id = 1; id <= 500; id++) {
+            products.add(product(id, "product " + random.nextInt(50), ProductType.CLOTHING, random.nextInt(20), 1));
+        }
+        sortIndex.rebuild(products);
+        for (boolean ascending : new boolean[]{true, false}) {
+            Comparator<Product> order = Comparator.comparingDouble(Product::getPrice).thenComparingInt(Product::getId);
+            List<Integer> expected = ids(products.stream()
+                    .sorted(ascending ? order : order.reversed())
+                    .collect(Collectors.toList()));
+            List<Integer> paged = new ArrayList<>();
+            List<Product> page = sortIndex.page(ProductType.CLOTHING, ProductSortKey.PRICE, ascending, null, 0, 7);
+            while (!page.isEmpty()) {
+                paged.addAll(ids(page));
+                Product last = page.get(page.size() - 1);
+                page = sortIndex.page(ProductType.CLOTHING, ProductSortKey.PRICE, ascending, last.getPrice(), last.getId(), 7);
+            }
+            assertEquals(expected, paged);
+        }
+    }
+
+    @Test
+    void adjustStock_Changes_Count_In_Stock_Of_Pages() {
+        sortIndex.adjustStock(1, -2);
+        Product telephone = sortIndex.page(ProductType.ELECTRONICS, ProductSortKey.PRICE, false, null, 0, 1).get(0);
+        assertEquals(4, telephone.getId());
+        telephone = sortIndex.page(ProductType.ELECTRONICS, ProductSortKey.PRICE, false, 300.0, 4, 1).get(0);
+        assertEquals(1, telephone.getCountInStock());
+    }
+
+    private static List<Integer> ids(List<Product> products) {
+        return products.stream().map(Product::getId).collect(Collectors.toList());
+    }
+
+    private static Product product(int id, String name, ProductType type, double price, int countInStock) {
+        return Product.builder()
+                .id(id)
+                .name(name)
+                .type(type)
+                .price(price)
+                .countInStock(countInStock)
+                .createdDate(new Date(1_600_000_000_000L + id))
+                .build();
+    }
+}
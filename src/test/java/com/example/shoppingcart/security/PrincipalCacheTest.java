@@ -0,0 +1,50 @@
+package com.example.shoppingcart.security;
+
+import com.example.shoppingcart.entity.User;
+import com.example.shoppingcart.entity.UserType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrincipalCacheTest {
+
+    private PrincipalCache principalCache;
+    private CurrentUser currentUser;
+
+    @BeforeEach
+    void beforeEach() {
+        principalCache = new PrincipalCache(100, 600, new SimpleMeterRegistry());
+        currentUser = new CurrentUser(User.builder()
+                .email("lennon@gmail.com")
+                .password("12345678")
+                .type(UserType.CUSTOMER)
+                .build());
+    }
+
+    @Test
+    void get_Returns_Cached_Principal_Of_Token() {
+        principalCache.put("token", currentUser, new Date(System.currentTimeMillis() + 60_000));
+        assertSame(currentUser, principalCache.get("token"));
+        assertNull(principalCache.get("other token"));
+    }
+
+    @Test
+    void get_Does_Not_Return_Principal_Of_Expired_Token() {
+        principalCache.put("token", currentUser, new Date(System.currentTimeMillis() - 1));
+        assertNull(principalCache.get("token"));
+    }
+
+    @Test
+    void evictUser_Removes_All_Tokens_Of_User() {
+        Date expiration = new Date(System.currentTimeMillis() + 60_000);
+        principalCache.put("token", currentUser, expiration);
+        principalCache.put("second token", currentUser, expiration);
+        principalCache.evictUser("lennon@gmail.com");
+        assertNull(principalCache.get("token"));
+        assertNull(principalCache.get("second token"));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.shoppingcart.security;
+
+import com.example.shoppingcart.config.RateLimitProperties;
+import com.example.shoppingcart.metrics.ShoppingCartMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong(1_000 * SECOND);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RateLimiter rateLimiter;
+
+    @BeforeEach
+    void beforeEach() {
+        RateLimitProperties.Route route = new RateLimitProperties.Route();
+        route.setName("login");
+        route.setMethod("POST");
+        route.setPath("/user/auth");
+        route.setCapacity(3);
+        route.setPerSecond(1);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setIdleTimeout(60_000);
+        properties.setRoutes(Collections.singletonList(route));
+        rateLimiter = new RateLimiter(properties, new ShoppingCartMetrics(meterRegistry), clock::get);
+    }
+
+
+    @Test
+    void match_By_Method_And_Path() {
+        assertEquals("login", rateLimiter.match("POST", "/user/auth").getName());
+        assertNull(rateLimiter.match("GET", "/user/auth"));
+        assertNull(rateLimiter.match("POST", "/user/"));
+    }
+
+    @Test
+    void burst_Up_To_Capacity_Then_One_Token_Per_Interval() {
+        RateLimiter.RouteLimit route = rateLimiter.match("POST", "/user/auth");
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(route, "10.0.0.1"));
+        }
+        assertEquals(SECOND, rateLimiter.tryAcquire(route, "10.0.0.1"));
+        assertEquals(0, rateLimiter.tryAcquire(route, "10.0.0.2"));
+
+        clock.addAndGet(SECOND / 2);
+        assertEquals(SECOND / 2, rateLimiter.tryAcquire(route, "10.0.0.1"));
+        clock.addAndGet(SECOND / 2);
+        assertEquals(0, rateLimiter.tryAcquire(route, "10.0.0.1"));
+        assertTrue(rateLimiter.tryAcquire(route, "10.0.0.1") > 0);
+        assertEquals(3, meterRegistry.get("rate.limit.rejected").tag("route", "login").counter().count());
+    }
+
+    @Test
+    void idle_Buckets_Are_Evicted_Once_Full_For_The_Idle_Timeout() {
+        RateLimiter.RouteLimit route = rateLimiter.match("POST", "/user/auth");
+        rateLimiter.tryAcquire(route, "10.0.0.1");
+        clock.addAndGet(30 * SECOND);
+        rateLimiter.tryAcquire(route, "10.0.0.2");
+        clock.addAndGet(32 * SECOND);
+
+        rateLimiter.evictIdleBuckets();
+
+        assertEquals(1, rateLimiter.bucketCount());
+    }
+}
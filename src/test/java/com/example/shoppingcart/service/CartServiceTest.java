@@ -0,0 +1,138 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.dto.request.CheckoutItemDto;
+import com.example.shoppingcart.entity.Product;
+import com.example.shoppingcart.entity.ProductType;
+import com.example.shoppingcart.entity.User;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class CartServiceTest {
+
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User user;
+    private Product first;
+    private Product second;
+
+
+    @BeforeEach
+    void beforeEach() {
+        user = userRepository.findByEmail("cart@gmail.com").orElseGet(() -> userRepository.save(User.builder()
+                .name("Paul")
+                .surname("McCartney")
+                .email("cart@gmail.com")
+                .password("12345678")
+                .birthday(new Date())
+                .build()));
+        first = createProduct("first");
+        second = createProduct("second");
+        cartService.clear(user);
+        cartService.flush();
+    }
+
+
+    @Test
+    void cart_Changes_Are_Written_Only_By_Flush() {
+        cartService.addItem(user, first.getId(), 1);
+        cartService.addItem(user, second.getId(), 2);
+        cartService.addItem(user, first.getId(), 2);
+        List<CheckoutItemDto> items = cartService.removeItem(user, second.getId());
+        assertEquals(1, items.size());
+        assertEquals(3, items.get(0).getCount());
+        assertEquals(0, countRows());
+
+        cartService.flush();
+        assertEquals(1, countRows());
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "SELECT count_of_product FROM cart_items WHERE user_id = ?", Integer.class, user.getId()));
+    }
+
+    @Test
+    void flushed_Cart_Is_Loaded_Again() {
+        cartService.addItem(user, first.getId(), 1);
+        cartService.addItem(user, second.getId(), 4);
+        cartService.flush();
+
+        List<CheckoutItemDto> items = new CartService(jdbcTemplate, transactionTemplate, 0).findItems(user);
+        assertEquals(2, items.size());
+        assertEquals(first.getId(), items.get(0).getProductId());
+        assertEquals(1, items.get(0).getCount());
+        assertEquals(second.getId(), items.get(1).getProductId());
+        assertEquals(4, items.get(1).getCount());
+    }
+
+    @Test
+    void removeItems_Keeps_Items_Added_Meanwhile() {
+        cartService.addItem(user, first.getId(), 2);
+        cartService.addItem(user, second.getId(), 1);
+        List<CheckoutItemDto> ordered = cartService.findItems(user);
+        // added while the checkout runs
+        cartService.addItem(user, first.getId(), 3);
+
+        List<CheckoutItemDto> items = cartService.removeItems(user, ordered);
+        assertEquals(1, items.size());
+        assertEquals(first.getId(), items.get(0).getProductId());
+        assertEquals(3, items.get(0).getCount());
+    }
+
+    @Test
+    void removed_Product_Doesnt_Keep_Carts_From_Being_Written() {
+        User other = userRepository.findByEmail("other.cart@gmail.com").orElseGet(() -> userRepository.save(User.builder()
+                .name("Ringo")
+                .surname("Starr")
+                .email("other.cart@gmail.com")
+                .password("12345678")
+                .birthday(new Date())
+                .build()));
+        Product removed = createProduct("removed");
+        cartService.addItem(user, removed.getId(), 1);
+        cartService.addItem(user, first.getId(), 2);
+        cartService.addItem(other, second.getId(), 3);
+        productRepository.deleteById(removed.getId());
+
+        cartService.flush();
+        assertEquals(1, countRows());
+        assertEquals(first.getId(), cartService.findItems(user).get(0).getProductId());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM cart_items WHERE user_id = ?", Integer.class, other.getId()));
+        cartService.clear(other);
+        cartService.flush();
+    }
+
+
+    private int countRows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart_items WHERE user_id = ?", Integer.class, user.getId());
+    }
+
+    private Product createProduct(String name) {
+        return productRepository.save(Product.builder()
+                .name(name)
+                .description(name)
+                .createdDate(new Date())
+                .type(ProductType.CLOTHING)
+                .countInStock(10)
+                .build());
+    }
+}
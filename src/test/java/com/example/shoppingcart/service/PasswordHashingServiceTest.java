@@ -0,0 +1,79 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.exception.PasswordHashingRejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PasswordHashingService passwordHashingService;
+
+    @AfterEach
+    void afterEach() {
+        passwordHashingService.shutdown();
+    }
+
+    @Test
+    void encode_And_Matches_Run_On_The_Pool() {
+        passwordHashingService = new PasswordHashingService(new BCryptPasswordEncoder(4), 2, 4, 5000, 1, meterRegistry);
+        String hash = passwordHashingService.encode("12345678");
+        assertTrue(passwordHashingService.matches("12345678", hash));
+        assertFalse(passwordHashingService.matches("87654321", hash));
+        assertEquals(1, meterRegistry.get("password.hashing").tag("operation", "encode").timer().count());
+        assertEquals(2, meterRegistry.get("password.hashing").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    void encode_Is_Rejected_When_Pool_And_Queue_Are_Full() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        passwordHashingService = new PasswordHashingService(blockingEncoder(started, release), 1, 1, 5000, 3, meterRegistry);
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> passwordHashingService.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> passwordHashingService.encode("second"));
+        while (meterRegistry.get("password.hashing.queue").gauge().value() < 1) {
+            Thread.sleep(1);
+        }
+
+        PasswordHashingRejectedException e = assertThrows(PasswordHashingRejectedException.class,
+                () -> passwordHashingService.encode("third"));
+        assertEquals(3, e.getRetryAfterSeconds());
+        assertEquals(1, meterRegistry.get("password.hashing.rejected").counter().count());
+
+        release.countDown();
+        assertEquals("first", running.join());
+        assertEquals("second", queued.join());
+    }
+
+
+    private PasswordEncoder blockingEncoder(CountDownLatch started, CountDownLatch release) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return rawPassword.toString().equals(encodedPassword);
+            }
+        };
+    }
+}
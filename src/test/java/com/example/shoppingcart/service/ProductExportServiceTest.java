@@ -0,0 +1,92 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.entity.Product;
+import com.example.shoppingcart.entity.ProductType;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ProductExportServiceTest {
+
+    @Autowired
+    private ProductExportService productExportService;
+    @Autowired
+    private ProductRepository productRepository;
+    private final SimpleDateFormat sdf = new SimpleDateFormat("dd.MM.yyyy");
+
+    private Product product;
+
+
+    @BeforeEach
+    void beforeEach() throws ParseException {
+        product = productRepository.save(Product.builder()
+                .name("exported")
+                .description("exported, with \"quotes\"")
+                .type(ProductType.CLOTHING)
+                .price(7.5)
+                .countInStock(3)
+                .createdDate(sdf.parse("04.04.2022"))
+                .updatedDate(LocalDate.of(2022, 5, 6))
+                .build());
+    }
+
+
+    @Test
+    void exportJsonLines_Writes_One_Product_Per_Line() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = productExportService.export(out, ProductExportService.Format.JSONL);
+        String[] lines = out.toString(StandardCharsets.UTF_8.name()).split("\n");
+
+        assertEquals(productRepository.count(), count);
+        assertEquals(count, lines.length);
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode exported = null;
+        for (String line : lines) {
+            JsonNode node = objectMapper.readTree(line);
+            if (node.get("id").asInt() == product.getId()) {
+                exported = node;
+            }
+        }
+        assertNotNull(exported);
+        assertEquals("exported, with \"quotes\"", exported.get("description").asText());
+        assertEquals("CLOTHING", exported.get("type").asText());
+        assertEquals(7.5, exported.get("price").asDouble());
+        assertEquals("04.04.2022", exported.get("createdDate").asText());
+        assertEquals("06.05.2022", exported.get("updatedDate").asText());
+    }
+
+    @Test
+    void exportCsv_Can_Be_Imported_Again() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = productExportService.export(out, ProductExportService.Format.CSV);
+        String[] lines = out.toString(StandardCharsets.UTF_8.name()).split("\n");
+
+        assertEquals(count + 1, lines.length);
+        assertEquals("id,name,description,type,price,countInStock,createdDate,updatedDate", lines[0]);
+        String exported = null;
+        for (String line : lines) {
+            if (line.startsWith(product.getId() + ",")) {
+                exported = line;
+            }
+        }
+        List<String> values = ProductImportService.parseCsvLine(exported);
+        assertEquals("exported, with \"quotes\"", values.get(2));
+        assertEquals("04.04.2022", values.get(6));
+        assertEquals("06.05.2022", values.get(7));
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.dto.response.ProductImportReportDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ProductImportServiceTest {
+
+    @Autowired
+    private ProductImportService productImportService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private Validator validator;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+
+    @Test
+    void importCsv_Inserts_Valid_Rows_And_Reports_Invalid_Ones() {
+        String csv = "type,name,description,price,countInStock,createdDate\n" +
+                "CLOTHING,csvshirt,\"white shirt, cotton\",12.5,10,04.04.2022\n" +
+                "clothing,csvjeans,blue jeans for everyday,40,3,05.04.2022\n" +
+                "CLOTHING,csvhat,a hat with \"\"logo\"\",abc,3,05.04.2022\n" +
+                "\n" +
+                "FOOD,csvsocks,a pair of warm socks,2,1,31.02.2022\n" +
+                "CLOTHING,cs,too short name here,2,1,01.02.2022\n" +
+                "CLOTHING,csvscarf,long and warm scarf,9,5,01.02.2022\n";
+        ProductImportReportDto report = importProducts(csv, ProductImportService.Format.CSV);
+
+        assertNull(report.getAbortedWith());
+        assertEquals(3, report.getImportedRows());
+        assertEquals(3, report.getRejectedRows());
+        assertEquals(Arrays.asList(3L, 4L, 5L), Arrays.asList(report.getErrors().get(0).getRow(),
+                report.getErrors().get(1).getRow(), report.getErrors().get(2).getRow()));
+        assertEquals(2, report.getErrors().get(1).getErrors().size());
+        assertEquals("white shirt, cotton", jdbcTemplate.queryForObject(
+                "SELECT description FROM product WHERE name = 'csvshirt'", String.class));
+        assertFalse(productService.findByKeyword("csvscarf").isEmpty());
+    }
+
+    @Test
+    void importJson_Skips_Invalid_Rows_And_Stops_At_Broken_Json() {
+        String json = "[" +
+                "{\"name\":\"jsonshirt\",\"description\":\"black shirt, linen\",\"type\":\"CLOTHING\"," +
+                "\"price\":15,\"countInStock\":2,\"createdDate\":\"01.01.2022\"}," +
+                "{\"name\":\"jsonhat\",\"description\":\"hat without a price\",\"type\":\"CLOTHING\"," +
+                "\"price\":\"abc\",\"countInStock\":2,\"createdDate\":\"01.01.2022\"}," +
+                "{\"name\":\"jsoncoat\",\"description\":\"warm winter coat\",\"type\":\"CLOTHING\"," +
+                "\"price\":99,\"countInStock\":1,\"createdDate\":\"01.01.2022\"}," +
+                "{\"name\":\"jsonbroken\",";
+        ProductImportReportDto report = importProducts(json, ProductImportService.Format.JSON);
+
+        assertNotNull(report.getAbortedWith());
+        assertEquals(2, report.getImportedRows());
+        assertEquals(1, report.getRejectedRows());
+        assertEquals(2, report.getErrors().get(0).getRow());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM product WHERE name = 'jsoncoat'", Integer.class));
+    }
+
+    @Test
+    void rows_Of_Batch_That_Fails_Are_Rejected() {
+        JdbcTemplate failingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                throw new DataIntegrityViolationException("batch failed");
+            }
+        };
+        ProductImportService failingImportService = new ProductImportService(failingJdbcTemplate, transactionTemplate,
+                validator, objectMapper, productService, 2, 1000);
+        String csv = "type,name,description,price,countInStock,createdDate\n" +
+                "CLOTHING,failshirt,white cotton shirt,12.5,10,04.04.2022\n" +
+                "CLOTHING,failjeans,blue jeans for everyday,40,3,05.04.2022\n" +
+                "CLOTHING,failscarf,long and warm scarf,9,5,01.02.2022\n";
+        ProductImportReportDto report = failingImportService.importProducts(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ProductImportService.Format.CSV);
+
+        assertNotNull(report.getAbortedWith());
+        assertEquals(0, report.getImportedRows());
+        assertEquals(2, report.getRejectedRows());
+        assertEquals(Arrays.asList(1L, 2L), Arrays.asList(report.getErrors().get(0).getRow(), report.getErrors().get(1).getRow()));
+        assertEquals("Batch couldn't be written: batch failed", report.getErrors().get(0).getErrors().get(0));
+    }
+
+    @Test
+    void parseCsvLine_Handles_Quoted_Values() {
+        assertEquals(Arrays.asList("a", "b, c", "say \"hi\"", ""),
+                ProductImportService.parseCsvLine("a,\"b, c\",\"say \"\"hi\"\"\","));
+    }
+
+
+    private ProductImportReportDto importProducts(String content, ProductImportService.Format format) {
+        return productImportService.importProducts(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), format);
+    }
+}
@@ -1,15 +1,17 @@
 package com.example.shoppingcart.service;
 
 import com.example.shoppingcart.dto.request.ProductRequestDto;
+import com.example.shoppingcart.dto.response.PageResponseDto;
 import com.example.shoppingcart.dto.response.ProductResponseDto;
 import com.example.shoppingcart.entity.Product;
+import com.example.shoppingcart.entity.ProductSortKey;
 import com.example.shoppingcart.repository.ProductRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.data.domain.Sort;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -84,7 +86,7 @@ class ProductServiceTest {
         productService.save(productRequestDto);
         productService.save(productRequestDto);
         productService.save(productRequestDto);
-        List<ProductResponseDto> allProducts = productService.findAll();
+        List<ProductResponseDto> allProducts = productService.findAll(null, 100).getItems();
         assertFalse(allProducts.isEmpty());
         assertEquals(4,allProducts.size());
 
@@ -96,8 +98,8 @@ class ProductServiceTest {
         productService.save(productRequestDto);
         productService.save(productRequestDto);
         productService.save(productRequestDto);
-        List<ProductResponseDto> electronicProducts = productService.findByType("ELECTRONICS");
-        List<ProductResponseDto> careProducts = productService.findByType("CARE");
+        List<ProductResponseDto> electronicProducts = productService.findByType("ELECTRONICS", null, 100).getItems();
+        List<ProductResponseDto> careProducts = productService.findByType("CARE", null, 100).getItems();
         assertFalse(electronicProducts.isEmpty());
         assertEquals(3,electronicProducts.size());
         assertTrue(careProducts.isEmpty());
@@ -118,8 +120,59 @@ class ProductServiceTest {
     @Test
     void findProductsSortedByType() {
         productService.save(productRequestDto);
-        Sort sort = Sort.by("name").ascending();
-        List<ProductResponseDto> products = productService.findByTypeSorted("ELECTRONICS", sort);
+        List<ProductResponseDto> products = productService.findByTypeSorted("ELECTRONICS", ProductSortKey.NAME, true, null, 20).getItems();
         assertFalse(products.isEmpty());
     }
+
+    @Test
+    void findProductsSortedByType_Page_By_Page() {
+        double[] prices = {300, 100, 200, 100, 300};
+        for (double price : prices) {
+            productRequestDto.setType("HOUSEHOLD");
+            productRequestDto.setPrice(price);
+            productService.save(productRequestDto);
+        }
+        List<ProductResponseDto> products = new ArrayList<>();
+        String cursor = null;
+        do {
+            PageResponseDto<ProductResponseDto> page = productService.findByTypeSorted("HOUSEHOLD", ProductSortKey.PRICE, false, cursor, 2);
+            assertTrue(page.getItems().size() <= 2);
+            products.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(prices.length, products.size());
+        for (int i = 1; i < products.size(); i++) {
+            ProductResponseDto previous = products.get(i - 1);
+            ProductResponseDto current = products.get(i);
+            assertTrue(previous.getPrice() > current.getPrice()
+                    || previous.getPrice() == current.getPrice() && previous.getId() > current.getId());
+        }
+    }
+
+    @Test
+    void findProductsSortedByType_Sees_Changes_Of_Other_Nodes_After_Rebuild() {
+        productRequestDto.setType("HOUSEHOLD");
+        ProductResponseDto saved = productService.save(productRequestDto);
+        // written around this service, like by another node
+        Product product = productRepository.findById(saved.getId()).get();
+        product.setPrice(999999);
+        productRepository.save(product);
+
+        productService.rebuildIndexes();
+        ProductResponseDto mostExpensive = productService.findByTypeSorted("HOUSEHOLD", ProductSortKey.PRICE, false, null, 1)
+                .getItems().get(0);
+        assertEquals(saved.getId(), mostExpensive.getId());
+        assertEquals(999999, mostExpensive.getPrice());
+    }
+
+    @Test
+    void findAllProducts_Is_Cached_Until_Catalog_Changes() {
+        productService.save(productRequestDto);
+        PageResponseDto<ProductResponseDto> products = productService.findAll(null, 100);
+        assertSame(products, productService.findAll(null, 100));
+        productService.save(productRequestDto);
+        PageResponseDto<ProductResponseDto> productsAfterSave = productService.findAll(null, 100);
+        assertNotSame(products, productsAfterSave);
+        assertEquals(products.getItems().size() + 1, productsAfterSave.getItems().size());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.dto.response.SalesAnalyticsDto;
+import com.example.shoppingcart.entity.*;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.repository.SalesRollupRepository;
+import com.example.shoppingcart.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class SalesAnalyticsServiceTest {
+
+    @Autowired
+    private SalesAnalyticsService salesAnalyticsService;
+    @Autowired
+    private UserOrderService userOrderService;
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Product product;
+
+
+    @BeforeEach
+    void beforeEach() {
+        user = userRepository.findByEmail("analytics@gmail.com").orElseGet(() -> userRepository.save(User.builder()
+                .name("Ringo")
+                .surname("Starr")
+                .email("analytics@gmail.com")
+                .password("12345678")
+                .build()));
+        product = productRepository.save(Product.builder()
+                .name("jacket")
+                .description("warm jacket")
+                .type(ProductType.CLOTHING)
+                .price(250)
+                .countInStock(10)
+                .createdDate(new Date())
+                .build());
+    }
+
+    @AfterEach
+    void afterEach() {
+        // orders of other tests are counted by user in the shared database
+        jdbcTemplate.update("DELETE FROM user_orders WHERE user_id = ?", user.getId());
+    }
+
+
+    @Test
+    void rollups_Follow_Order_Changes() {
+        SalesAnalyticsDto before = salesAnalyticsService.analytics();
+
+        UserOrder order = userOrderService.save(user, product.getId(), 2);
+        SalesAnalyticsDto placed = salesAnalyticsService.analytics();
+        assertEquals(500, placed.getRevenueByType().get(ProductType.CLOTHING) - before.getRevenueByType().get(ProductType.CLOTHING), 0.001);
+        assertEquals(1, placed.getOrdersByStatus().get(OrderStatus.AWAITING_FOR_PAYMENT) - before.getOrdersByStatus().get(OrderStatus.AWAITING_FOR_PAYMENT));
+
+        order = userOrderService.changeStatus(order, OrderStatus.CANCELED.name());
+        SalesAnalyticsDto canceled = salesAnalyticsService.analytics();
+        assertEquals(before.getRevenueByType().get(ProductType.CLOTHING), canceled.getRevenueByType().get(ProductType.CLOTHING), 0.001);
+        assertEquals(before.getOrdersByStatus().get(OrderStatus.AWAITING_FOR_PAYMENT), canceled.getOrdersByStatus().get(OrderStatus.AWAITING_FOR_PAYMENT));
+        assertEquals(1, canceled.getOrdersByStatus().get(OrderStatus.CANCELED) - before.getOrdersByStatus().get(OrderStatus.CANCELED));
+
+        userOrderService.delete(order);
+        SalesAnalyticsDto deleted = salesAnalyticsService.analytics();
+        assertEquals(before.getOrdersByStatus(), deleted.getOrdersByStatus());
+    }
+
+    @Test
+    void topSellers_Are_Ranked_When_Persisted() {
+        userOrderService.save(user, product.getId(), 10);
+        salesAnalyticsService.persist();
+
+        assertEquals(product.getId(), salesAnalyticsService.analytics().getTopSellers().get(0).getProductId());
+        assertEquals("jacket", salesAnalyticsService.analytics().getTopSellers().get(0).getName());
+        assertTrue(salesRollupRepository.findById("PRODUCT:" + product.getId()).isPresent());
+    }
+
+    @Test
+    void nodes_Persist_Their_Changes_Without_Overwriting_Each_Other() {
+        salesAnalyticsService.orderChangedAfterCommit(product, 1, null, OrderStatus.DELIVERED);
+        salesAnalyticsService.persist();
+        long before = salesAnalyticsService.analytics().getOrdersByStatus().get(OrderStatus.DELIVERED);
+        SalesAnalyticsService otherNode = new SalesAnalyticsService(salesRollupRepository, productRepository, jdbcTemplate, 10);
+        otherNode.load();
+
+        otherNode.orderChangedAfterCommit(product, 3, null, OrderStatus.DELIVERED);
+        otherNode.orderChangedAfterCommit(product, 2, null, OrderStatus.DELIVERED);
+        salesAnalyticsService.orderChangedAfterCommit(product, 1, null, OrderStatus.DELIVERED);
+        otherNode.persist();
+        salesAnalyticsService.persist();
+        otherNode.persist();
+
+        assertEquals(before + 3, salesAnalyticsService.analytics().getOrdersByStatus().get(OrderStatus.DELIVERED));
+        assertEquals(before + 3, otherNode.analytics().getOrdersByStatus().get(OrderStatus.DELIVERED));
+        assertEquals(before + 3, salesRollupRepository.findById("STATUS:DELIVERED").get().getOrders());
+
+        otherNode.orderChangedAfterCommit(product, 3, OrderStatus.DELIVERED, null);
+        otherNode.orderChangedAfterCommit(product, 2, OrderStatus.DELIVERED, null);
+        salesAnalyticsService.orderChangedAfterCommit(product, 1, OrderStatus.DELIVERED, null);
+        salesAnalyticsService.orderChangedAfterCommit(product, 1, OrderStatus.DELIVERED, null);
+        otherNode.persist();
+        salesAnalyticsService.persist();
+    }
+
+    @Test
+    void rebuild_Counts_All_Orders() {
+        userOrderService.save(user, product.getId(), 1);
+        salesRollupRepository.deleteAll();
+
+        SalesAnalyticsDto rebuilt = salesAnalyticsService.rebuild();
+
+        Map<OrderStatus, Long> ordersByStatus = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            ordersByStatus.put(status, jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM user_orders WHERE status = ?", Long.class, status.name()));
+        }
+        assertEquals(ordersByStatus, rebuilt.getOrdersByStatus());
+        assertTrue(salesRollupRepository.count() > 0);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.entity.Product;
+import com.example.shoppingcart.entity.ProductType;
+import com.example.shoppingcart.entity.User;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.repository.StockLeaseRepository;
+import com.example.shoppingcart.repository.UserOrderRepository;
+import com.example.shoppingcart.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * orders of a hot product on more threads than connections, claims and give backs must not wait for an order's connection
+ * own database, so the pool is used by this test only
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stockLeaseDb",
+        "spring.datasource.hikari.maximum-pool-size=4",
+        "spring.datasource.hikari.connection-timeout=5000",
+        "reactive-catalog.url=r2dbc:h2:mem:///stockLeaseDb",
+        "order-journal.directory=target/order-journal-stock-lease",
+        "access-log.file=target/access-stock-lease.log",
+        "stock-lease.block-size=5",
+        "stock-lease.leases-per-product=2"})
+class StockLeaseConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ORDERS = 400;
+
+    @Autowired
+    private StockLeaseService stockLeaseService;
+    @Autowired
+    private UserOrderService userOrderService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private StockLeaseRepository stockLeaseRepository;
+    @Autowired
+    private UserOrderRepository userOrderRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+
+    @Test
+    void orders_Of_Hot_Product_With_Small_Pool() throws Exception {
+        User user = userRepository.save(User.builder()
+                .name("Ringo")
+                .surname("Starr")
+                .email("pool@gmail.com")
+                .password("12345678")
+                .build());
+        Product product = productRepository.save(Product.builder()
+                .name("sneakers")
+                .description("limited sneakers")
+                .type(ProductType.CLOTHING)
+                .price(120)
+                .countInStock(1000)
+                .createdDate(new Date())
+                .build());
+        for (int i = 0; i < 3; i++) {
+            userOrderService.save(user, product.getId(), 1);
+        }
+        stockLeaseService.detect();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < ORDERS; i++) {
+                futures.add(executor.submit(() -> userOrderService.save(user, product.getId(), 1)));
+            }
+            // used up leases are given back and new ones claimed while the orders run
+            while (!futures.stream().allMatch(Future::isDone)) {
+                stockLeaseService.detect();
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        stockLeaseService.releaseAll();
+        assertEquals(1000 - 3 - ORDERS, productRepository.findById(product.getId()).get().getCountInStock());
+        assertEquals(3 + ORDERS, userOrderRepository.findAll().stream()
+                .filter(order -> order.getProduct().getId() == product.getId()).count());
+        assertEquals(0, stockLeaseRepository.count());
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.shoppingcart.service;
+
+import com.example.shoppingcart.dto.request.CheckoutItemDto;
+import com.example.shoppingcart.dto.request.ProductRequestDto;
+import com.example.shoppingcart.entity.Product;
+import com.example.shoppingcart.entity.ProductType;
+import com.example.shoppingcart.entity.StockLease;
+import com.example.shoppingcart.entity.User;
+import com.example.shoppingcart.exception.StockReservationException;
+import com.example.shoppingcart.repository.ProductRepository;
+import com.example.shoppingcart.repository.StockLeaseRepository;
+import com.example.shoppingcart.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * test application.yml: hot-threshold 3, block-size 10, one lease per product, detection only when called
+ */
+@SpringBootTest
+class StockLeaseServiceTest {
+
+    @Autowired
+    private StockLeaseService stockLeaseService;
+    @Autowired
+    private UserOrderService userOrderService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private StockLeaseRepository stockLeaseRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+
+    @BeforeEach
+    void beforeEach() {
+        // reservations of other tests must not make their products hot
+        coolDown();
+        user = userRepository.findByEmail("lease@gmail.com").orElseGet(() -> userRepository.save(User.builder()
+                .name("George")
+                .surname("Harrison")
+                .email("lease@gmail.com")
+                .password("12345678")
+                .build()));
+    }
+
+    @AfterEach
+    void afterEach() {
+        coolDown();
+        // orders of other tests are counted by user in the shared database
+        jdbcTemplate.update("DELETE FROM user_orders WHERE user_id = ?", user.getId());
+    }
+
+
+    @Test
+    void hot_Product_Is_Reserved_From_Lease() {
+        Product product = createProduct(100);
+        makeHot(product);
+        assertEquals(87, stockInDatabase(product));
+
+        userOrderService.save(user, product.getId(), 1);
+        userOrderService.save(user, product.getId(), 2);
+        assertEquals(87, stockInDatabase(product));
+        assertEquals(7, stockLeaseRepository.findAll().stream()
+                .filter(lease -> lease.getProductId() == product.getId()).findFirst().get().getUnits());
+
+        coolDown();
+        assertEquals(94, stockInDatabase(product));
+        assertTrue(stockLeaseRepository.findAll().stream().noneMatch(lease -> lease.getProductId() == product.getId()));
+    }
+
+    @Test
+    void rolled_Back_Order_Gives_Items_Back_To_Lease() {
+        Product product = createProduct(100);
+        Product soldOut = createProduct(0);
+        makeHot(product);
+        StockLease lease = stockLeaseRepository.findAll().stream()
+                .filter(l -> l.getProductId() == product.getId()).findFirst().get();
+
+        assertThrows(StockReservationException.class, () -> userOrderService.checkout(user, Arrays.asList(
+                new CheckoutItemDto(product.getId(), 4),
+                new CheckoutItemDto(soldOut.getId(), 1))));
+        assertEquals(10, stockLeaseRepository.findById(lease.getId()).get().getUnits());
+
+        // the used up lease is refilled in the background, the stock is checked once all leases are given back
+        userOrderService.save(user, product.getId(), 10);
+        assertEquals(0, stockLeaseRepository.findById(lease.getId()).get().getUnits());
+
+        coolDown();
+        assertEquals(87, stockInDatabase(product));
+    }
+
+    @Test
+    void last_Items_Are_Reserved_From_Database() {
+        Product product = createProduct(8);
+        makeHot(product);
+
+        userOrderService.save(user, product.getId(), 5);
+        assertEquals(0, stockInDatabase(product));
+        assertThrows(StockReservationException.class, () -> userOrderService.save(user, product.getId(), 1));
+    }
+
+    @Test
+    void releaseAll_Gives_Back_Leased_Items() {
+        Product product = createProduct(100);
+        makeHot(product);
+        userOrderService.save(user, product.getId(), 1);
+
+        stockLeaseService.releaseAll();
+        assertEquals(96, stockInDatabase(product));
+    }
+
+    @Test
+    void update_Cancels_Leases_Of_Product() {
+        Product product = createProduct(100);
+        makeHot(product);
+        userOrderService.save(user, product.getId(), 1);
+
+        productService.update(product, ProductRequestDto.builder()
+                .name("sneakers")
+                .description("limited sneakers")
+                .countInStock(50)
+                .createdDate("04.04.2022")
+                .build());
+        assertEquals(50, stockInDatabase(product));
+        assertTrue(stockLeaseRepository.findAll().stream().noneMatch(lease -> lease.getProductId() == product.getId()));
+
+        coolDown();
+        assertEquals(50, stockInDatabase(product));
+    }
+
+    @Test
+    void expired_Lease_Of_Another_Node_Is_Given_Back() {
+        Product product = createProduct(50);
+        StockLease lease = stockLeaseRepository.save(StockLease.builder()
+                .productId(product.getId())
+                .owner("crashed node")
+                .units(6)
+                .createdDate(LocalDateTime.now().minusMinutes(2))
+                .expiresAt(LocalDateTime.now().minusMinutes(1))
+                .build());
+
+        stockLeaseService.detect();
+        assertEquals(56, stockInDatabase(product));
+        assertFalse(stockLeaseRepository.existsById(lease.getId()));
+    }
+
+
+    /**
+     * 3 orders of 1 item, then the detection claims a lease of 10 items
+     */
+    private void makeHot(Product product) {
+        for (int i = 0; i < 3; i++) {
+            userOrderService.save(user, product.getId(), 1);
+        }
+        stockLeaseService.detect();
+    }
+
+    private void coolDown() {
+        stockLeaseService.detect();
+        stockLeaseService.detect();
+    }
+
+    private int stockInDatabase(Product product) {
+        return productRepository.findById(product.getId()).get().getCountInStock();
+    }
+
+    private Product createProduct(int countInStock) {
+        return productRepository.save(Product.builder()
+                .name("sneakers")
+                .description("limited sneakers")
+                .type(ProductType.CLOTHING)
+                .price(120)
+                .countInStock(countInStock)
+                .createdDate(new Date())
+                .build());
+    }
+}
@@ -1,17 +1,33 @@
 package com.example.shoppingcart.service;
 
+import com.example.shoppingcart.dto.request.CheckoutItemDto;
+import com.example.shoppingcart.dto.response.CheckoutResponseDto;
+import com.example.shoppingcart.dto.response.UserOrderResponseDto;
 import com.example.shoppingcart.entity.*;
+import com.example.shoppingcart.exception.StockReservationException;
+import com.example.shoppingcart.journal.OrderEvent;
+import com.example.shoppingcart.journal.OrderEventType;
+import com.example.shoppingcart.journal.OrderJournal;
 import com.example.shoppingcart.repository.ProductRepository;
 import com.example.shoppingcart.repository.UserOrderRepository;
 import com.example.shoppingcart.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import javax.persistence.EntityManagerFactory;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -26,6 +42,12 @@ class UserOrderServiceTest {
     private UserRepository userRepository;
     @Autowired
     private ProductRepository productRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private OrderJournal orderJournal;
+    @Autowired
+    private CatalogVersion catalogVersion;
     private final SimpleDateFormat sdf = new SimpleDateFormat("dd.MM.yyyy");
 
     private User user;
@@ -43,33 +65,172 @@ class UserOrderServiceTest {
     @Test
     void saveOrder() {
         int count = product.getCountInStock();
-        UserOrder order = userOrderService.save(user, product, 5);
+        UserOrder order = userOrderService.save(user, product.getId(), 5);
         assertEquals(1,userOrderRepository.count());
         assertEquals(1,order.getId());
         assertEquals(user,order.getUser());
-        assertEquals(count-5,product.getCountInStock());
+        assertEquals(count-5,productRepository.findById(product.getId()).get().getCountInStock());
+    }
+
+    @Test
+    void saveOrder_Does_Not_Change_Catalog_Version() {
+        long version = catalogVersion.current();
+        userOrderService.save(user, product.getId(), 1);
+        assertEquals(version, catalogVersion.current());
+    }
+
+    @Test
+    void saveOrder_When_Count_Is_More_Than_Count_In_Stock() {
+        assertThrows(StockReservationException.class, () -> userOrderService.save(user, product.getId(), 16));
+        assertEquals(15,productRepository.findById(product.getId()).get().getCountInStock());
+    }
+
+    @Test
+    void saveOrders_In_Parallel_Never_Oversells() throws InterruptedException {
+        int countInStock = 500;
+        int countOfOrders = 2000;
+        product.setCountInStock(countInStock);
+        productRepository.save(product);
+        long ordersBefore = countOrdersOfProduct();
+
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger saved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        for (int i = 0; i < countOfOrders; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    userOrderService.save(user, product.getId(), 1);
+                    saved.incrementAndGet();
+                } catch (StockReservationException e) {
+                    rejected.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+
+        assertEquals(countInStock, saved.get());
+        assertEquals(countOfOrders - countInStock, rejected.get());
+        assertEquals(0, productRepository.findById(product.getId()).get().getCountInStock());
+        assertEquals(countInStock, countOrdersOfProduct() - ordersBefore);
+    }
+
+    @Test
+    void checkout() {
+        Product secondProduct = createSecondProduct();
+        CheckoutResponseDto checkout = userOrderService.checkout(user, Arrays.asList(
+                new CheckoutItemDto(secondProduct.getId(), 2),
+                new CheckoutItemDto(product.getId(), 4),
+                new CheckoutItemDto(product.getId(), 1)));
+        assertEquals(2, checkout.getItems().size());
+        assertEquals(product.getId(), checkout.getItems().get(0).getProductId());
+        assertEquals(5, checkout.getItems().get(0).getCount());
+        assertEquals(10, productRepository.findById(product.getId()).get().getCountInStock());
+        assertEquals(1, productRepository.findById(secondProduct.getId()).get().getCountInStock());
+        List<UserOrder> orders = userOrderRepository.findOrdersByCheckoutId(checkout.getCheckoutId());
+        assertEquals(2, orders.size());
+        assertTrue(orders.stream().allMatch(order -> order.getUser().getId() == user.getId()
+                && order.getStatus() == OrderStatus.AWAITING_FOR_PAYMENT));
+    }
+
+    @Test
+    void checkout_Is_Journaled() {
+        Product secondProduct = createSecondProduct();
+        OrderJournal.Reader reader = orderJournal.reader(orderJournal.lastSequence() + 1);
+        CheckoutResponseDto checkout = userOrderService.checkout(user, Arrays.asList(
+                new CheckoutItemDto(product.getId(), 1),
+                new CheckoutItemDto(secondProduct.getId(), 2)));
+        List<OrderEvent> events = reader.poll(10);
+        assertEquals(2, events.size());
+        assertTrue(events.stream().allMatch(event -> event.getType() == OrderEventType.CREATED
+                && event.getUserId() == user.getId()
+                && event.getCheckoutId().equals(checkout.getCheckoutId())));
+        assertEquals(2, events.stream()
+                .filter(event -> event.getProductId() == secondProduct.getId())
+                .findFirst().get().getCountOfProduct());
+    }
+
+    @Test
+    void checkout_When_One_Count_Is_More_Than_Count_In_Stock() {
+        Product secondProduct = createSecondProduct();
+        long ordersBefore = userOrderRepository.count();
+        long lastSequence = orderJournal.lastSequence();
+        StockReservationException e = assertThrows(StockReservationException.class, () ->
+                userOrderService.checkout(user, Arrays.asList(
+                        new CheckoutItemDto(product.getId(), 5),
+                        new CheckoutItemDto(secondProduct.getId(), 4))));
+        assertEquals(secondProduct.getId(), e.getProductId());
+        assertEquals(15, productRepository.findById(product.getId()).get().getCountInStock());
+        assertEquals(3, productRepository.findById(secondProduct.getId()).get().getCountInStock());
+        assertEquals(ordersBefore, userOrderRepository.count());
+        assertEquals(lastSequence, orderJournal.lastSequence());
     }
 
     @Test
     void findCurrentUserOrders() {
-        userOrderService.save(user, product, 1);
-        List<UserOrder> currentUserOrders = userOrderService.findUserOrders(user);
+        userOrderService.save(user, product.getId(), 1);
+        List<UserOrderResponseDto> currentUserOrders = userOrderService.findUserOrders(user, null, 20).getItems();
         assertFalse(currentUserOrders.isEmpty());
         assertEquals(1,currentUserOrders.size());
     }
 
+    @Test
+    void findCurrentUserOrders_Uses_One_Statement_For_Any_Count_Of_Orders() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        User customer = userRepository.findByEmail("orders@gmail.com").orElseGet(() -> userRepository.save(User.builder()
+                .name("George")
+                .surname("Harrison")
+                .email("orders@gmail.com")
+                .password("12345678")
+                .build()));
+        for (int countOfOrders : new int[]{1, 30}) {
+            while (userOrderService.findUserOrders(customer, null, 100).getItems().size() < countOfOrders) {
+                userOrderRepository.save(UserOrder.builder()
+                        .user(customer)
+                        .product(product)
+                        .countOfProduct(1)
+                        .status(OrderStatus.AWAITING_FOR_PAYMENT)
+                        .build());
+            }
+            statistics.clear();
+            List<UserOrderResponseDto> orders = userOrderService.findUserOrders(customer, null, 100).getItems();
+            assertEquals(countOfOrders, orders.size());
+            assertEquals("asd", orders.get(0).getProductName());
+            assertEquals(1, statistics.getPrepareStatementCount());
+            assertEquals(0, statistics.getEntityLoadCount());
+        }
+    }
+
     @Test
     void changeOrderStatus() {
-        UserOrder order = userOrderService.save(user, product, 1);
+        UserOrder order = userOrderService.save(user, product.getId(), 1);
         assertEquals(OrderStatus.AWAITING_FOR_PAYMENT,order.getStatus());
         UserOrder updatedOrder = userOrderService.changeStatus(order, "DELIVERED");
         assertEquals(OrderStatus.DELIVERED,updatedOrder.getStatus());
 
     }
 
+    @Test
+    void changeOrderStatus_Is_Journaled_After_Commit() {
+        UserOrder order = userOrderService.save(user, product.getId(), 1);
+        OrderJournal.Reader reader = orderJournal.reader(orderJournal.lastSequence() + 1);
+        userOrderService.changeStatus(order, "DELIVERED");
+        userOrderService.delete(order);
+        List<OrderEvent> events = reader.poll(10);
+        assertEquals(2, events.size());
+        assertEquals(OrderEventType.STATUS_CHANGED, events.get(0).getType());
+        assertEquals(OrderEventType.DELETED, events.get(1).getType());
+        assertTrue(events.stream().allMatch(event -> event.getOrderId() == order.getId()));
+    }
+
     @Test
     void deleteOrder() {
-        UserOrder order = userOrderService.save(user, product, 1);
+        UserOrder order = userOrderService.save(user, product.getId(), 1);
         assertEquals(1,userOrderRepository.count());
         userOrderService.delete(order);
         assertEquals(0,userOrderRepository.count());
@@ -79,6 +240,12 @@ class UserOrderServiceTest {
 
 
 
+    private long countOrdersOfProduct() {
+        return userOrderRepository.findAll().stream()
+                .filter(order -> order.getProduct().getId() == product.getId())
+                .count();
+    }
+
     private void createProduct() throws ParseException {
         product = Product.builder()
                 .id(1)
@@ -88,7 +255,18 @@ class UserOrderServiceTest {
                 .type(ProductType.ELECTRONICS)
                 .countInStock(15)
                 .build();
-        productRepository.save(product);
+        product = productRepository.save(product);
+    }
+
+    private Product createSecondProduct() {
+        return productRepository.save(Product.builder()
+                .id(2)
+                .name("qwe")
+                .description("qwe")
+                .createdDate(product.getCreatedDate())
+                .type(ProductType.CLOTHING)
+                .countInStock(3)
+                .build());
     }
 
     private void createUser() throws ParseException {
@@ -100,6 +278,6 @@ class UserOrderServiceTest {
                 .password("12345678")
                 .birthday(sdf.parse("04.04.1994"))
                 .build();
-        userRepository.save(user);
+        user = userRepository.save(user);
     }
 }
\ No newline at end of file
@@ -3,13 +3,18 @@ package com.example.shoppingcart.service;
 import com.example.shoppingcart.dto.request.CreateUserRequestDto;
 import com.example.shoppingcart.dto.response.UserResponseDto;
 import com.example.shoppingcart.entity.User;
+import com.example.shoppingcart.entity.UserType;
 import com.example.shoppingcart.repository.UserRepository;
+import com.example.shoppingcart.security.CurrentUser;
+import com.example.shoppingcart.security.PrincipalCache;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import java.text.ParseException;
+import java.util.Date;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -21,6 +26,8 @@ class UserServiceTest {
     private UserService userService;
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private PrincipalCache principalCache;
 
     private CreateUserRequestDto createUserRequestDto;
 
@@ -35,6 +42,13 @@ class UserServiceTest {
                 .build();
     }
 
+    @AfterEach
+    void afterEach() {
+        // save_User_From_Request counts all users
+        userRepository.findByEmail("harrison@gmail.com").ifPresent(userRepository::delete);
+        userRepository.findByEmail("starr@gmail.com").ifPresent(userRepository::delete);
+    }
+
     @Test
     void save_User_From_Request() throws ParseException {
         userService.save(createUserRequestDto);
@@ -54,4 +68,36 @@ class UserServiceTest {
         UserResponseDto userResponseDto = userService.login(user);
         assertNotNull(userResponseDto.getToken());
     }
-}
\ No newline at end of file
+
+
+    @Test
+    void changePassword_Evicts_Cached_Principal() {
+        User user = savedUser("harrison@gmail.com");
+        principalCache.put("password token", new CurrentUser(user), new Date(System.currentTimeMillis() + 60_000));
+
+        userService.changePassword(user, "87654321");
+        assertNull(principalCache.get("password token"));
+        assertNotEquals("87654321", userRepository.findByEmail("harrison@gmail.com").get().getPassword());
+    }
+
+    @Test
+    void changeType_Evicts_Cached_Principal() {
+        User user = savedUser("starr@gmail.com");
+        principalCache.put("type token", new CurrentUser(user), new Date(System.currentTimeMillis() + 60_000));
+
+        userService.changeType(user, UserType.ADMIN);
+        assertNull(principalCache.get("type token"));
+        assertEquals(UserType.ADMIN, userRepository.findByEmail("starr@gmail.com").get().getType());
+    }
+
+
+    private User savedUser(String email) {
+        return userRepository.findByEmail(email).orElseGet(() -> userRepository.save(User.builder()
+                .name("Ringo")
+                .surname("Starr")
+                .email(email)
+                .password("12345678")
+                .type(UserType.CUSTOMER)
+                .build()));
+    }
+}